@@ -1,9 +1,17 @@
 package com.fjps.main;
 
+import com.fjps.main.calculation.BatchResult;
+import com.fjps.main.calculation.BatchSolver;
+import com.fjps.main.calculation.BatchStatistics;
+import com.fjps.main.calculation.SolveResult;
 import com.fjps.main.calculation.TSPExactSolver;
+import com.fjps.main.calculation.TSPImprovedSolver;
 import com.fjps.main.calculation.TSPOneHalfEstimator;
 import com.fjps.main.graph.Generator;
 import com.fjps.main.graph.Graph;
+import com.fjps.main.graph.exceptions.NoVerticesException;
+
+import java.util.stream.Stream;
 
 /**
  * Main class of the List 1 program for Approximation Algorithms.
@@ -41,16 +49,18 @@ public class Main {
         System.out.println("Exact result calculation time:     " + "NOT CALCULATED");//format(exactResult));
         System.out.println("Estimated result calculation time: " + format(estimatedResult));
 
+        System.out.println();
+        calculateBatch(1000, 30);
     }
 
     private static long calculateBySolver(Graph<Double> graph) {
         TSPExactSolver<Double> solver = new TSPExactSolver<>();
 
         long start = System.nanoTime();
-        double result = solver.calculateOptimum(graph);
+        SolveResult<Double> result = solver.calculateOptimum(graph);
         long end = System.nanoTime();
 
-        System.out.println("Exact optimal:     " + result + "\n" + solver.getPathAsString());
+        System.out.println("Exact optimal:     " + result.getCost() + "\n" + result.getPathAsString());
 
         return end - start;
     }
@@ -59,14 +69,40 @@ public class Main {
         TSPOneHalfEstimator<Double> estimator = new TSPOneHalfEstimator<>();
 
         long start = System.nanoTime();
-        double result = estimator.calculateOptimum(graph);
+        SolveResult<Double> result = estimator.calculateOptimum(graph);
         long end = System.nanoTime();
 
-        System.out.println("Estimated optimal: " + result + "\n" + estimator.getPathAsString());
+        System.out.println("Estimated optimal: " + result.getCost() + "\n" + result.getPathAsString());
 
         return end - start;
     }
 
+    /**
+     * Solves many generated graphs concurrently, Christofides with local search for each.
+     */
+    private static void calculateBatch(int instances, int size) {
+        BatchSolver<Double> solver = new BatchSolver<>(new TSPImprovedSolver<>(new TSPOneHalfEstimator<>()));
+        BatchStatistics statistics = new BatchStatistics();
+
+        solver.solve(Stream.generate(() -> generateMetric(size)).limit(instances), statistics)
+                .forEach(BatchResult::getResult);
+
+        System.out.println("Batch of graphs with " + size + " vertexes: " + statistics);
+    }
+
+    private static Graph<Double> generateMetric(int size) {
+        Generator gen = new Generator(size);
+        gen.generateVertices();
+        try {
+            gen.generateEdges();
+        } catch (NoVerticesException e) {
+            throw new IllegalStateException(e);
+        }
+        gen.getG().assureMetric();
+
+        return gen.getG();
+    }
+
     public static String format(long nanos) {
         long sec = Math.abs(nanos / NANO);
         return String.format(
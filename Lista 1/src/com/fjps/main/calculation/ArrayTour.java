@@ -0,0 +1,85 @@
+package com.fjps.main.calculation;
+
+/**
+ * Tour kept as array of vertexes plus array of their positions. <code>flip()</code> reverses the shorter side of
+ * the tour, so it costs <code>O(n)</code>, but with the smallest constant - best for small tours.
+ */
+public final class ArrayTour implements Tour {
+
+    private final int n;
+    private final int[] tour;
+    private final int[] positions;
+
+    public ArrayTour(int[] tour) {
+        this.n = tour.length;
+        this.tour = tour.clone();
+        this.positions = new int[n];
+
+        for (int i = 0; i < n; i++)
+            positions[this.tour[i]] = i;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int next(int v) {
+        int position = positions[v] + 1;
+        return tour[position == n ? 0 : position];
+    }
+
+    @Override
+    public int previous(int v) {
+        int position = positions[v] - 1;
+        return tour[position < 0 ? n - 1 : position];
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        int pa = positions[a];
+        int pb = positions[b];
+        int pc = positions[c];
+
+        return pa <= pc ? pa <= pb && pb <= pc : pb >= pa || pb <= pc;
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (next(a) == b)
+            reverse(positions[b], positions[c]);
+        else
+            reverse(positions[a], positions[d]);
+    }
+
+    @Override
+    public int[] toArray() {
+        return tour.clone();
+    }
+
+    /**
+     * Reverses cyclic range <code>from .. to</code> of positions, or the rest of the tour if it is shorter -
+     * which gives the same cycle.
+     */
+    private void reverse(int from, int to) {
+        int length = (to - from + n) % n + 1;
+        if (2 * length > n) {
+            int start = to + 1 == n ? 0 : to + 1;
+            to = from == 0 ? n - 1 : from - 1;
+            from = start;
+            length = n - length;
+        }
+
+        for (int i = from, j = to, k = 0; k < length / 2; k++) {
+            int vi = tour[i];
+            int vj = tour[j];
+            tour[i] = vj;
+            positions[vj] = i;
+            tour[j] = vi;
+            positions[vi] = j;
+            i = i + 1 == n ? 0 : i + 1;
+            j = j == 0 ? n - 1 : j - 1;
+        }
+    }
+}
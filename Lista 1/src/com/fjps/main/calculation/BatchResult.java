@@ -0,0 +1,63 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * Outcome of one instance of a batch - its result or the exception thrown by the solver.
+ */
+public final class BatchResult<T extends Number> {
+
+    private final long index;
+    private final DistanceGraph graph;
+    private final SolveResult<T> result;
+    private final RuntimeException error;
+    private final long latencyNanos;
+
+    BatchResult(long index, DistanceGraph graph, SolveResult<T> result, RuntimeException error, long latencyNanos) {
+        this.index = index;
+        this.graph = graph;
+        this.result = result;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return Position of the instance in the input stream, from <code>0</code>.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public DistanceGraph getGraph() {
+        return graph;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * @return Result of the solver.
+     * @throws RuntimeException thrown by the solver for this instance
+     */
+    public SolveResult<T> getResult() {
+        if (error != null)
+            throw error;
+
+        return result;
+    }
+
+    /**
+     * @return Exception thrown by the solver, <code>null</code> if it succeeded.
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * @return Time from submitting the instance to the executor until its result was ready, in nanoseconds.
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+}
@@ -0,0 +1,142 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves many independent instances concurrently with one (stateless) solver.
+ * <p>
+ * Instances are pulled from the input stream lazily, only while fewer than <code>maxInFlight</code> of them are
+ * submitted and not yet consumed - a slow consumer of results thus slows down reading of the input as well, and
+ * memory stays bounded however long the input is. Results come in completion order; failure of one instance is
+ * reported in its <code>BatchResult</code> and does not stop the others.
+ * <p>
+ * Any <code>Executor</code> may run the solves. Default one is the common <code>ForkJoinPool</code>; parallel
+ * solvers (Held-Karp, branch and bound) use it internally as well, so a separate pool is better for them.
+ */
+public class BatchSolver<T extends Number> {
+
+    private final TravellingSalesmanProblemSolver<T> solver;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final Supplier<SolveOptions> options;
+
+    public BatchSolver(TravellingSalesmanProblemSolver<T> solver) {
+        this(solver, ForkJoinPool.commonPool(), 2 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param solver      per-instance strategy, shared by all threads
+     * @param executor    runs the solves
+     * @param maxInFlight largest number of instances submitted and not yet consumed
+     */
+    public BatchSolver(TravellingSalesmanProblemSolver<T> solver, Executor executor, int maxInFlight) {
+        this(solver, executor, maxInFlight, SolveOptions::unlimited);
+    }
+
+    /**
+     * @param options called once per instance, right before it is solved - e.g.
+     *                <code>() -&gt; SolveOptions.withBudget(200)</code> gives every instance its own budget
+     */
+    public BatchSolver(TravellingSalesmanProblemSolver<T> solver, Executor executor, int maxInFlight,
+                       Supplier<SolveOptions> options) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("At least one instance has to be in flight, got " + maxInFlight + ".");
+
+        this.solver = solver;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.options = options;
+    }
+
+    public Stream<BatchResult<T>> solve(Stream<? extends DistanceGraph> graphs) {
+        return solve(graphs, new BatchStatistics());
+    }
+
+    /**
+     * Nothing is submitted until the returned stream is consumed.
+     *
+     * @param graphs     instances to solve
+     * @param statistics receives throughput and latency of every completed instance
+     * @return Results in completion order.
+     */
+    public Stream<BatchResult<T>> solve(Stream<? extends DistanceGraph> graphs, BatchStatistics statistics) {
+        Batch batch = new Batch(graphs.iterator(), statistics);
+
+        return StreamSupport.stream(batch, false).onClose(graphs::close);
+    }
+
+    /**
+     * Pulls instances and results - all its methods run on the consumer thread, only <code>results</code> is
+     * shared with the executor.
+     */
+    private final class Batch extends Spliterators.AbstractSpliterator<BatchResult<T>> {
+
+        private final Iterator<? extends DistanceGraph> graphs;
+        private final BatchStatistics statistics;
+        private final BlockingQueue<BatchResult<T>> results = new LinkedBlockingQueue<>();
+        private long submitted;
+        private int inFlight;
+
+        Batch(Iterator<? extends DistanceGraph> graphs, BatchStatistics statistics) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.graphs = graphs;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BatchResult<T>> action) {
+            while (inFlight < maxInFlight && graphs.hasNext())
+                submit(graphs.next());
+
+            if (inFlight == 0)
+                return false;
+
+            BatchResult<T> result;
+            try {
+                result = results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for batch results.", e);
+            }
+
+            inFlight--;
+            action.accept(result);
+            return true;
+        }
+
+        private void submit(DistanceGraph graph) {
+            long index = submitted++;
+            long start = System.nanoTime();
+            statistics.started(start);
+
+            executor.execute(() -> {
+                SolveResult<T> result = null;
+                RuntimeException error = null;
+                try {
+                    result = solver.solve(graph, options.get());
+                } catch (RuntimeException e) {
+                    error = e;
+                } catch (Error e) {
+                    error = new IllegalStateException("Solver failed on instance " + index + ".", e);
+                }
+
+                long end = System.nanoTime();
+                statistics.completed(end - start, error != null, end);
+                results.add(new BatchResult<>(index, graph, result, error, end - start));
+            });
+            inFlight++;
+        }
+    }
+}
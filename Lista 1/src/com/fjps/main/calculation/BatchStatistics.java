@@ -0,0 +1,80 @@
+package com.fjps.main.calculation;
+
+import java.util.Arrays;
+
+/**
+ * Throughput and latency of a batch, collected while results are produced. Thread-safe; may be read at any time,
+ * also while the batch runs.
+ */
+public final class BatchStatistics {
+
+    private long[] latencies = new long[64];
+    private int count;
+    private int failures;
+    private boolean started;
+    private long start;
+    private long end;
+
+    synchronized void started(long now) {
+        if (!started) {
+            started = true;
+            start = now;
+        }
+    }
+
+    synchronized void completed(long latencyNanos, boolean failed, long now) {
+        if (count == latencies.length)
+            latencies = Arrays.copyOf(latencies, 2 * count);
+        latencies[count++] = latencyNanos;
+
+        if (failed)
+            failures++;
+        end = now;
+    }
+
+    public synchronized int getCompleted() {
+        return count;
+    }
+
+    public synchronized int getFailed() {
+        return failures;
+    }
+
+    /**
+     * @return Completed instances per second, from the first submission to the last completion.
+     */
+    public synchronized double getThroughput() {
+        return count == 0 ? 0.0 : count * 1e9 / Math.max(end - start, 1);
+    }
+
+    /**
+     * @param percentile value from <code>(0, 100]</code>
+     * @return Latency not exceeded by <code>percentile</code> percent of instances (nearest rank), in
+     * nanoseconds; <code>0</code> if nothing completed yet.
+     */
+    public synchronized long getLatencyPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile has to be in (0, 100], got " + percentile + ".");
+        if (count == 0)
+            return 0;
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        return sorted[(int) Math.ceil(percentile / 100 * count) - 1];
+    }
+
+    public long getP50() {
+        return getLatencyPercentile(50);
+    }
+
+    public long getP99() {
+        return getLatencyPercentile(99);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d instances (%d failed), %.1f/s, latency p50 %.3f ms, p99 %.3f ms",
+                getCompleted(), getFailed(), getThroughput(), getP50() / 1e6, getP99() / 1e6);
+    }
+}
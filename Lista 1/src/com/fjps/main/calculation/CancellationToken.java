@@ -0,0 +1,18 @@
+package com.fjps.main.calculation;
+
+/**
+ * Flag through which another thread asks a running solver to stop. Solver then returns the best tour found so far.
+ * One token may be shared by many solves - cancelling it stops all of them.
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,585 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.Arrays;
+
+/**
+ * Tour kept up to date while vertexes join and leave it, one at a time - for live routing, where re-solving the
+ * whole instance after every change is too slow.
+ * <p>
+ * New vertex is put where it lengthens the tour least (cheapest insertion), removed one is spliced out. Then a
+ * bounded local repair runs around the affected region: the same 2-opt and Or-opt moves as in
+ * <code>LocalSearchImprover</code>, searched only from vertexes whose tour edges changed, at most
+ * <code>repairBudget</code> of them per update. Tour is a doubly-linked list, so insertion, removal and segment
+ * moves are constant time; 2-opt reverses the shorter of both paths, but only if it has at most
+ * <code>MAX_REVERSAL</code> vertexes - moves reversing more are left to <code>improve()</code>, which runs any
+ * <code>TourImprover</code> over the whole current tour.
+ * <p>
+ * Candidate lists of nearest tour vertexes are maintained along: new vertex is added to every list it belongs to
+ * during the insertion scan, removed one is dropped from all of them and lists which got too short are refilled.
+ * An update costs thus <code>O(n * k)</code> cheap operations plus the repair, regardless of how the tour looks.
+ * <p>
+ * Vertexes are indexes of <code>graph</code>, which may contain more of them than the tour (e.g. all known
+ * customers) and may grow (<code>Graph.addVertex()</code> appends indexes), but indexes of tour vertexes must stay
+ * stable - <code>Graph.removeVertex()</code> renumbers vertexes, so only <code>remove()</code> them from the session.
+ * Distances have to be symmetric and finite between tour vertexes. Session is not thread-safe.
+ */
+public class DynamicTourSession {
+
+    public static final int DEFAULT_NEIGHBOURS = 10;
+    public static final int DEFAULT_REPAIR_BUDGET = 256;
+
+    /**
+     * Longest path reversed by a 2-opt move during repair.
+     */
+    public static final int MAX_REVERSAL = 1000;
+
+    private static final int MAX_SEGMENT = 3;
+
+    /**
+     * Relative length change treated as rounding noise rather than improvement.
+     */
+    private static final double TOLERANCE = 1e-12;
+
+    private final DistanceGraph graph;
+    private final int neighbours;
+    private final int repairBudget;
+
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private int[] slot = new int[0];
+    private int[] members = new int[0];
+    private int size;
+    private double length;
+
+    private int[][] nearest = new int[0][];
+    private double[][] nearestDistances = new double[0][];
+    private int[] nearestCount = new int[0];
+
+    private int[] queue = new int[0];
+    private boolean[] queued = new boolean[0];
+    private int head;
+    private int queueSize;
+
+    private long moves;
+
+    public DynamicTourSession(DistanceGraph graph, int[] tour) {
+        this(graph, tour, DEFAULT_NEIGHBOURS, DEFAULT_REPAIR_BUDGET);
+    }
+
+    /**
+     * @param graph        distances between vertexes
+     * @param tour         initial tour, e.g. found by a solver on vertexes of <code>graph</code>; may be empty
+     * @param neighbours   length of candidate lists
+     * @param repairBudget largest number of vertexes searched for improving moves after every update
+     */
+    public DynamicTourSession(DistanceGraph graph, int[] tour, int neighbours, int repairBudget) {
+        if (neighbours < 1)
+            throw new IllegalArgumentException("At least one neighbour is needed, got " + neighbours + ".");
+        if (repairBudget < 0)
+            throw new IllegalArgumentException("Repair budget cannot be negative, got " + repairBudget + ".");
+
+        this.graph = graph;
+        this.neighbours = neighbours;
+        this.repairBudget = repairBudget;
+
+        ensureCapacity(graph.getNumberVertexes());
+        Arrays.fill(slot, -1);
+        for (int v : tour) {
+            check(v);
+            if (slot[v] >= 0)
+                throw new IllegalArgumentException("Vertex " + v + " is twice in the tour.");
+            slot[v] = size;
+            members[size++] = v;
+        }
+
+        relink(tour);
+
+        int[][] lists = NeighbourLists.nearest(graph, tour, neighbours);
+        for (int i = 0; i < size; i++) {
+            int v = tour[i];
+            nearestCount[v] = 0;
+            for (int position : lists[i])
+                addNearest(v, tour[position], d(v, tour[position]));
+        }
+    }
+
+    /**
+     * Puts <code>v</code> where it lengthens the tour least, then repairs the tour around it.
+     *
+     * @param v index of a graph vertex not in the tour
+     */
+    public void insert(int v) {
+        ensureCapacity(graph.getNumberVertexes());
+        check(v);
+        if (slot[v] >= 0)
+            throw new IllegalArgumentException("Vertex " + v + " already is in the tour.");
+
+        nearestCount[v] = 0;
+        int after = -1;
+        double cheapest = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            int a = members[i];
+            double distance = d(a, v);
+            double cost = distance + d(v, next[a]) - d(a, next[a]);
+            if (cost < cheapest) {
+                cheapest = cost;
+                after = a;
+            }
+
+            addNearest(v, a, distance);
+            addNearest(a, v, distance);
+        }
+
+        slot[v] = size;
+        members[size++] = v;
+
+        if (after < 0) {
+            next[v] = previous[v] = v;
+            return;
+        }
+
+        int before = next[after];
+        link(after, v, true);
+        link(v, before, true);
+        length += cheapest;
+
+        repair(after, v, before);
+    }
+
+    /**
+     * Splices <code>v</code> out of the tour, then repairs the tour around the gap.
+     *
+     * @param v index of a vertex in the tour
+     */
+    public void remove(int v) {
+        if (v < 0 || v >= slot.length || slot[v] < 0)
+            throw new IllegalArgumentException("Vertex " + v + " is not in the tour.");
+
+        int before = previous[v];
+        int after = next[v];
+        length += size <= 2 ? -length : d(before, after) - d(before, v) - d(v, after);
+        link(before, after, true);
+
+        int last = members[--size];
+        members[slot[v]] = last;
+        slot[last] = slot[v];
+        slot[v] = -1;
+
+        int minimum = Math.min(neighbours, size - 1) / 2;
+        for (int i = 0; i < size; i++) {
+            int a = members[i];
+            if (removeNearest(a, v) && nearestCount[a] < minimum)
+                refill(a);
+        }
+
+        if (size > 0)
+            repair(before, after);
+    }
+
+    public boolean contains(int v) {
+        return v >= 0 && v < slot.length && slot[v] >= 0;
+    }
+
+    /**
+     * @return Number of vertexes in the tour.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Length of the tour, updated by every change - may differ from <code>Tours.length()</code> by rounding.
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * @return Improving moves made by repairs so far.
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return Current tour as sequence of vertex indexes.
+     */
+    public int[] getTour() {
+        int[] tour = new int[size];
+
+        for (int i = 0, v = size > 0 ? members[0] : -1; i < size; i++, v = next[v])
+            tour[i] = v;
+
+        return tour;
+    }
+
+    /**
+     * Runs <code>improver</code> over the whole current tour - for moves bigger than the local repair makes, e.g.
+     * every few hundred updates. Length is recomputed exactly afterwards.
+     *
+     * @param improver improvement stage
+     * @param options  deadline, cancellation token and listener passed to <code>improver</code>
+     */
+    public void improve(TourImprover improver, SolveOptions options) {
+        int[] tour = getTour();
+        DistanceGraph induced = new DistanceGraph() {
+            @Override
+            public int getNumberVertexes() {
+                return tour.length;
+            }
+
+            @Override
+            public double getDistance(int v1, int v2) {
+                return graph.getDistance(tour[v1], tour[v2]);
+            }
+
+            @Override
+            public String getLabel(int v) {
+                return graph.getLabel(tour[v]);
+            }
+        };
+
+        int[] identity = new int[tour.length];
+        for (int i = 0; i < identity.length; i++)
+            identity[i] = i;
+
+        int[] improved = improver.improve(induced, identity, options);
+        for (int i = 0; i < improved.length; i++)
+            improved[i] = tour[improved[i]];
+
+        relink(improved);
+    }
+
+    private void relink(int[] tour) {
+        for (int i = 0; i < tour.length; i++)
+            link(tour[i], tour[(i + 1) % tour.length], true);
+
+        length = Tours.length(graph, tour);
+    }
+
+    private void check(int v) {
+        if (v < 0 || v >= graph.getNumberVertexes())
+            throw new IllegalArgumentException("There is no vertex " + v + " in graph of "
+                    + graph.getNumberVertexes() + ".");
+    }
+
+    private void ensureCapacity(int capacity) {
+        int old = next.length;
+        if (capacity <= old)
+            return;
+
+        capacity = Math.max(capacity, 2 * old);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        members = Arrays.copyOf(members, capacity);
+        slot = Arrays.copyOf(slot, capacity);
+        Arrays.fill(slot, old, capacity, -1);
+
+        nearest = Arrays.copyOf(nearest, capacity);
+        nearestDistances = Arrays.copyOf(nearestDistances, capacity);
+        nearestCount = Arrays.copyOf(nearestCount, capacity);
+        for (int v = old; v < capacity; v++) {
+            nearest[v] = new int[neighbours];
+            nearestDistances[v] = new double[neighbours];
+        }
+
+        queue = new int[capacity];
+        queued = new boolean[capacity];
+        head = 0;
+        queueSize = 0;
+    }
+
+    private double d(int a, int b) {
+        return graph.getDistance(a, b);
+    }
+
+    private int step(int v, boolean forward) {
+        return forward ? next[v] : previous[v];
+    }
+
+    /**
+     * Makes <code>b</code> follow <code>a</code> in given direction.
+     */
+    private void link(int a, int b, boolean forward) {
+        if (forward) {
+            next[a] = b;
+            previous[b] = a;
+        } else {
+            previous[a] = b;
+            next[b] = a;
+        }
+    }
+
+    /**
+     * Puts <code>u</code> to the sorted candidate list of <code>v</code>, if it is near enough.
+     */
+    private void addNearest(int v, int u, double distance) {
+        int[] list = nearest[v];
+        double[] distances = nearestDistances[v];
+        int count = nearestCount[v];
+        if (count == neighbours && distance >= distances[count - 1])
+            return;
+
+        int position = count < neighbours ? count++ : count - 1;
+        while (position > 0 && distances[position - 1] > distance) {
+            list[position] = list[position - 1];
+            distances[position] = distances[position - 1];
+            position--;
+        }
+        list[position] = u;
+        distances[position] = distance;
+        nearestCount[v] = count;
+    }
+
+    /**
+     * @return <code>true</code> if <code>u</code> was on the candidate list of <code>v</code>.
+     */
+    private boolean removeNearest(int v, int u) {
+        int[] list = nearest[v];
+        int count = nearestCount[v];
+
+        for (int i = 0; i < count; i++)
+            if (list[i] == u) {
+                System.arraycopy(list, i + 1, list, i, count - i - 1);
+                System.arraycopy(nearestDistances[v], i + 1, nearestDistances[v], i, count - i - 1);
+                nearestCount[v] = count - 1;
+                return true;
+            }
+
+        return false;
+    }
+
+    private void refill(int v) {
+        nearestCount[v] = 0;
+
+        for (int i = 0; i < size; i++)
+            if (members[i] != v)
+                addNearest(v, members[i], d(v, members[i]));
+    }
+
+    /**
+     * Local search from <code>seeds</code>, then from ends of every changed edge, until no move is found or
+     * <code>repairBudget</code> vertexes were searched.
+     */
+    private void repair(int... seeds) {
+        while (queueSize > 0) {
+            queued[queue[head]] = false;
+            head = (head + 1) % queue.length;
+            queueSize--;
+        }
+
+        if (size < 5)
+            return;
+
+        for (int v : seeds)
+            push(v);
+
+        for (int searched = 0; queueSize > 0 && searched < repairBudget; searched++) {
+            int a = queue[head];
+            head = (head + 1) % queue.length;
+            queueSize--;
+            queued[a] = false;
+
+            if (twoOpt(a) || orOpt(a)) {
+                moves++;
+                push(a);
+            }
+        }
+    }
+
+    private void push(int v) {
+        if (!queued[v]) {
+            queued[v] = true;
+            queue[(head + queueSize++) % queue.length] = v;
+        }
+    }
+
+    private static boolean improves(double change, double removed) {
+        return change < -TOLERANCE * Math.abs(removed);
+    }
+
+    /**
+     * Replaces edges <code>(a, b)</code> and <code>(c, d)</code> with <code>(a, c)</code> and
+     * <code>(b, d)</code>; <code>b, d</code> follow <code>a, c</code> in the same direction.
+     */
+    private boolean twoOpt(int a) {
+        int[] list = nearest[a];
+
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int b = step(a, forward);
+            double removed = d(a, b);
+
+            for (int i = 0; i < nearestCount[a]; i++) {
+                int c = list[i];
+                double added = nearestDistances[a][i];
+                if (added >= removed)
+                    break;
+
+                int d = step(c, forward);
+                if (c == b || d == a)
+                    continue;
+
+                double change = added + d(b, d) - removed - d(c, d);
+                if (improves(change, removed + d(c, d)) && (forward ? reverse(b, c) : reverse(a, d))) {
+                    length += change;
+                    push(b);
+                    push(c);
+                    push(d);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reverses path going forward from <code>x</code> to <code>y</code>, or the rest of the tour - whichever has
+     * at most <code>MAX_REVERSAL</code> vertexes.
+     *
+     * @return <code>false</code> if both are longer, tour is not changed then.
+     */
+    private boolean reverse(int x, int y) {
+        if (!within(x, y)) {
+            int afterY = next[y];
+            y = previous[x];
+            x = afterY;
+            if (!within(x, y))
+                return false;
+        }
+
+        int before = previous[x];
+        int after = next[y];
+        for (int v = x; ; ) {
+            int following = next[v];
+            next[v] = previous[v];
+            previous[v] = following;
+            if (v == y)
+                break;
+            v = following;
+        }
+
+        link(before, y, true);
+        link(x, after, true);
+        return true;
+    }
+
+    private boolean within(int x, int y) {
+        for (int i = 0, v = x; i < MAX_REVERSAL; i++, v = next[v])
+            if (v == y)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Moves segment <code>s1 .. s2</code> (following <code>p</code>, followed by <code>x</code>) between
+     * neighbouring <code>c</code> and <code>d</code>: as <code>c s1 .. s2 d</code> or <code>c s2 .. s1 d</code>.
+     */
+    private boolean orOpt(int s1) {
+        int[] list = nearest[s1];
+
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int p = step(s1, !forward);
+            int s2 = s1;
+
+            for (int segment = 1; segment <= MAX_SEGMENT && segment + 2 < size; segment++) {
+                if (segment > 1)
+                    s2 = step(s2, forward);
+
+                int x = step(s2, forward);
+                if (x == p)
+                    break;
+
+                double removed = d(p, s1) + d(s2, x) - d(p, x);
+                if (!(removed > 0.0))
+                    continue;
+
+                for (int i = 0; i < nearestCount[s1]; i++) {
+                    int v = list[i];
+                    double added = nearestDistances[s1][i];
+                    if (added >= removed)
+                        break;
+
+                    // v becomes predecessor of s1: c s1 .. s2 d
+                    int c = v;
+                    int d = step(v, forward);
+                    if (outside(c, d, p, s1, segment, forward)) {
+                        double change = added + d(s2, d) - d(c, d) - removed;
+                        if (improves(change, removed + d(c, d))) {
+                            move(p, s1, s2, x, c, d, forward, false);
+                            length += change;
+                            return true;
+                        }
+                    }
+
+                    // v becomes successor of s1: c s2 .. s1 d
+                    d = v;
+                    c = step(v, !forward);
+                    if (outside(c, d, p, s1, segment, forward)) {
+                        double change = added + d(c, s2) - d(c, d) - removed;
+                        if (improves(change, removed + d(c, d))) {
+                            move(p, s1, s2, x, c, d, forward, true);
+                            length += change;
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if neither <code>c</code> nor <code>d</code> belongs to segment and
+     * <code>(c, d)</code> does not touch <code>p</code>.
+     */
+    private boolean outside(int c, int d, int p, int s1, int segment, boolean forward) {
+        if (c == p || d == p)
+            return false;
+
+        for (int i = 0, v = s1; i < segment; i++, v = step(v, forward))
+            if (v == c || v == d)
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Segment move by relinking: segment is cut out, its inner links are swapped if it goes in reversed, and it is
+     * linked in between <code>c</code> and <code>d</code>.
+     */
+    private void move(int p, int s1, int s2, int x, int c, int d, boolean forward, boolean reversed) {
+        link(p, x, forward);
+
+        if (reversed) {
+            for (int v = s1; ; ) {
+                int following = step(v, forward);
+                int swap = next[v];
+                next[v] = previous[v];
+                previous[v] = swap;
+                if (v == s2)
+                    break;
+                v = following;
+            }
+            link(c, s2, forward);
+            link(s1, d, forward);
+        } else {
+            link(c, s1, forward);
+            link(s2, d, forward);
+        }
+
+        push(p);
+        push(x);
+        push(c);
+        push(d);
+        push(s1);
+        push(s2);
+    }
+}
@@ -0,0 +1,15 @@
+package com.fjps.main.calculation;
+
+/**
+ * Receives tours found during a solve, each one shorter than all reported before. Called synchronously from the
+ * solving thread (from several ones for parallel solvers, but never concurrently), so it should return quickly.
+ */
+@FunctionalInterface
+public interface ImprovementListener {
+
+    /**
+     * @param tour   found tour, as permutation of vertex indexes; a copy owned by the listener
+     * @param length length of <code>tour</code>
+     */
+    void improved(int[] tour, double length);
+}
@@ -0,0 +1,50 @@
+package com.fjps.main.calculation;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive <code>int</code>s, used as both list and stack.
+ */
+final class IntList {
+
+    private int[] data;
+    private int size;
+
+    IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == data.length)
+            data = Arrays.copyOf(data, 2 * size);
+        data[size++] = value;
+    }
+
+    int get(int index) {
+        return data[index];
+    }
+
+    int pop() {
+        return data[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int swap = data[i];
+            data[i] = data[j];
+            data[j] = swap;
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
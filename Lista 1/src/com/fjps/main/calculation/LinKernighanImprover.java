@@ -0,0 +1,352 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.Random;
+
+/**
+ * Lin-Kernighan variable depth search with iterated local search on top of it.
+ * <p>
+ * A move starts by removing tour edge <code>(t1, t2)</code>. Then, repeatedly, edge <code>(t2, t3)</code> to one of
+ * the nearest neighbours of <code>t2</code> is added and edge <code>(t3, t4)</code> is removed, where
+ * <code>t4</code> is chosen so that closing <code>(t4, t1)</code> gives a tour again - every step is a 2-opt move
+ * and <code>t4</code> becomes the next <code>t2</code>. Chain goes on as long as the sum of removed edges exceeds
+ * the sum of added ones (gain criterion), no removed edge is added and no added edge is removed. The best tour
+ * along the chain is kept. First step tries <code>BREADTH</code> candidates, deeper ones only the most promising.
+ * <p>
+ * Local optimum is then perturbed by a double-bridge kick (<code>A B C D</code> becomes <code>A C B D</code>) of
+ * segments close to each other, only vertexes next to changed edges are searched again and the result is kept if
+ * it is shorter - otherwise all flips made since the kick are undone. Kicks are repeated until wall-clock
+ * budget runs out.
+ */
+public class LinKernighanImprover implements TourImprover {
+
+    private static final int BREADTH = 5;
+    private static final int MAX_DEPTH = 50;
+    private static final int MAX_SEGMENT = 50;
+
+    /**
+     * Relative length change treated as rounding noise rather than improvement.
+     */
+    private static final double TOLERANCE = 1e-12;
+
+    private final long budgetNanos;
+    private final int neighbours;
+    private final Long seed;
+
+    /**
+     * @param budgetMillis wall-clock time of the whole improvement - kicks are repeated until it runs out, but the
+     *                     first local optimum is always reached; <code>0</code> for plain Lin-Kernighan local search
+     */
+    public LinKernighanImprover(long budgetMillis) {
+        this(budgetMillis, LocalSearchImprover.DEFAULT_NEIGHBOURS, null);
+    }
+
+    /**
+     * @param budgetMillis wall-clock time of the whole improvement
+     * @param neighbours   length of candidate lists
+     * @param seed         seed of kicks - every run then makes the same kicks; <code>null</code> for random ones
+     */
+    public LinKernighanImprover(long budgetMillis, int neighbours, Long seed) {
+        if (budgetMillis < 0)
+            throw new IllegalArgumentException("Time budget cannot be negative, got " + budgetMillis + ".");
+        if (neighbours < 1)
+            throw new IllegalArgumentException("At least one neighbour is needed, got " + neighbours + ".");
+
+        this.budgetNanos = budgetMillis * 1000000L;
+        this.neighbours = neighbours;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs until own budget or deadline of <code>options</code>, whichever comes first. Deadline of
+     * <code>options</code> and cancellation may stop even the first local optimisation.
+     */
+    @Override
+    public int[] improve(DistanceGraph graph, int[] tour, SolveOptions options) {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        if (tour.length < 5)
+            return tour.clone();
+
+        Random random = seed == null ? new Random() : new Random(seed);
+        Search search = new Search(graph, tour, NeighbourLists.nearest(graph, neighbours), options, random);
+        if (search.optimize() > 0.0)
+            search.report();
+        search.journal.clear();
+
+        if (tour.length >= 8)
+            while (System.nanoTime() - deadline < 0 && !options.isStopped())
+                if (search.kick())
+                    search.report();
+
+        return search.tour.toArray();
+    }
+
+    /**
+     * State of a single improvement run.
+     */
+    private static final class Search {
+
+        private final DistanceGraph graph;
+        private final int n;
+        private final Tour tour;
+        private final int[][] nearest;
+        private final IntList journal;
+        private final SolveOptions options;
+        private final Random random;
+
+        private final int[] queue;
+        private final boolean[] queued;
+        private int head;
+        private int size;
+
+        private final IntList added = new IntList(2 * MAX_DEPTH);
+        private final IntList removed = new IntList(2 * MAX_DEPTH);
+        private final IntList touched = new IntList(2 * MAX_DEPTH);
+
+        Search(DistanceGraph graph, int[] tour, int[][] nearest, SolveOptions options, Random random) {
+            this.graph = graph;
+            this.n = tour.length;
+            this.tour = Tours.of(tour);
+            this.nearest = nearest;
+            this.journal = new IntList(64);
+            this.options = options;
+            this.random = random;
+            this.queue = new int[n];
+            this.queued = new boolean[n];
+
+            for (int v : tour)
+                push(v);
+        }
+
+        private double d(int a, int b) {
+            return graph.getDistance(a, b);
+        }
+
+        private void push(int v) {
+            if (!queued[v]) {
+                queued[v] = true;
+                queue[(head + size++) % n] = v;
+            }
+        }
+
+        /**
+         * Runs moves from queued vertexes until none of them improves the tour.
+         *
+         * @return Total decrease of tour length.
+         */
+        double optimize() {
+            double total = 0.0;
+
+            while (size > 0 && !options.isStopped()) {
+                int t1 = queue[head];
+                head = (head + 1) % n;
+                size--;
+                queued[t1] = false;
+
+                for (double gain = move(t1); gain > 0.0; gain = move(t1))
+                    total += gain;
+            }
+
+            return total;
+        }
+
+        void report() {
+            if (options.isReporting()) {
+                int[] current = tour.toArray();
+                options.improved(current, Tours.length(graph, current));
+            }
+        }
+
+        /**
+         * Double-bridge kick followed by local search; reverted unless the tour got shorter.
+         *
+         * @return <code>true</code> if the tour got shorter.
+         */
+        boolean kick() {
+            int mark = journal.size();
+
+            int l1 = 1 + random.nextInt(Math.min(MAX_SEGMENT, n / 4));
+            int l2 = 1 + random.nextInt(Math.min(MAX_SEGMENT, n / 4));
+            int a = random.nextInt(n);
+            int b1 = tour.next(a);
+            int b2 = walk(b1, l1 - 1);
+            int c1 = tour.next(b2);
+            int c2 = walk(c1, l2 - 1);
+            int d = tour.next(c2);
+
+            double change = d(a, c1) + d(c2, b1) + d(b2, d) - d(a, b1) - d(b2, c1) - d(c2, d);
+
+            // A B C D -> A (B C)^r D = A C^r B^r D -> A C B D
+            flip(a, b1, c2, d);
+            flip(a, c2, c1, b2);
+            flip(c2, b2, b1, d);
+
+            for (int v : new int[]{a, b1, b2, c1, c2, d})
+                push(v);
+
+            change -= optimize();
+
+            if (change < -TOLERANCE * Math.abs(d(a, b1) + d(b2, c1) + d(c2, d))) {
+                journal.clear();
+                return true;
+            }
+
+            undo(mark);
+            return false;
+        }
+
+        /**
+         * Single Lin-Kernighan move from <code>t1</code>, in both directions.
+         *
+         * @return Decrease of tour length, <code>0</code> if no improving move was found.
+         */
+        private double move(int t1) {
+            for (int direction = 0; direction < 2; direction++) {
+                boolean forward = direction == 0;
+                int t2 = tour.step(t1, forward);
+                double g = d(t1, t2);
+
+                int tried = 0;
+                for (int t3 : nearest[t2]) {
+                    if (tried == BREADTH || g - d(t2, t3) <= 0.0)
+                        break;
+
+                    // undo restores the cycle, but maybe in the opposite direction
+                    forward = tour.next(t1) == t2;
+                    if (t3 == t1 || t3 == tour.step(t2, forward))
+                        continue;
+                    tried++;
+
+                    int mark = journal.size();
+                    added.clear();
+                    removed.clear();
+                    touched.clear();
+                    removed.add(t1);
+                    removed.add(t2);
+                    touched.add(t1);
+                    touched.add(t2);
+
+                    double gain = chain(t1, t2, t3, forward, g);
+                    if (gain > 0.0) {
+                        for (int i = 0; i < touched.size(); i++)
+                            push(touched.get(i));
+                        return gain;
+                    }
+
+                    undo(mark);
+                }
+            }
+
+            return 0.0;
+        }
+
+        /**
+         * Follows chain of 2-opt steps starting with adding <code>(t2, t3)</code>. Keeps the tour of the best gain,
+         * all later steps are undone.
+         *
+         * @param forward <code>true</code> if <code>t2</code> follows <code>t1</code> in tour order
+         * @param g       sum of removed edges minus sum of added ones, without closing edge
+         * @return Best decrease of tour length, <code>0</code> if none.
+         */
+        private double chain(int t1, int t2, int t3, boolean forward, double g) {
+            double best = 0.0;
+            int bestMark = journal.size();
+            double scale = g;
+
+            for (int depth = 0; depth < MAX_DEPTH && t3 >= 0; depth++) {
+                int t4 = tour.step(t3, !forward);
+                if (contains(added, t3, t4) || t4 == t2)
+                    break;
+
+                g += d(t3, t4) - d(t2, t3);
+                flip(t1, t2, t4, t3);
+
+                added.add(t2);
+                added.add(t3);
+                removed.add(t3);
+                removed.add(t4);
+                touched.add(t3);
+                touched.add(t4);
+
+                double gain = g - d(t4, t1);
+                if (gain > best + TOLERANCE * Math.abs(scale)) {
+                    best = gain;
+                    bestMark = journal.size();
+                }
+
+                t2 = t4;
+                forward = tour.next(t1) == t2;
+                t3 = next(t1, t2, forward, g);
+            }
+
+            undo(bestMark);
+            return best;
+        }
+
+        /**
+         * @return Most promising <code>t3</code> for the next step: maximising <code>d(t3, t4) - d(t2, t3)</code>
+         * among neighbours satisfying the gain criterion, <code>-1</code> if there is none.
+         */
+        private int next(int t1, int t2, boolean forward, double g) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (int t3 : nearest[t2]) {
+                double cost = d(t2, t3);
+                if (g - cost <= 0.0)
+                    break;
+                if (t3 == t1 || t3 == tour.step(t2, forward) || contains(removed, t2, t3))
+                    continue;
+
+                double value = d(t3, tour.step(t3, !forward)) - cost;
+                if (value > bestValue) {
+                    best = t3;
+                    bestValue = value;
+                }
+            }
+
+            return best;
+        }
+
+        private int walk(int v, int steps) {
+            for (int i = 0; i < steps; i++)
+                v = tour.next(v);
+
+            return v;
+        }
+
+        /**
+         * <code>Tour.flip()</code> recorded in the journal.
+         */
+        private void flip(int a, int b, int c, int d) {
+            tour.flip(a, b, c, d);
+            journal.add(a);
+            journal.add(b);
+            journal.add(c);
+            journal.add(d);
+        }
+
+        /**
+         * Undoes recorded flips until journal has <code>size</code> entries.
+         */
+        private void undo(int size) {
+            while (journal.size() > size) {
+                int d = journal.pop();
+                int c = journal.pop();
+                int b = journal.pop();
+                int a = journal.pop();
+                tour.flip(a, c, b, d);
+            }
+        }
+
+        private boolean contains(IntList edges, int a, int b) {
+            for (int i = 0; i < edges.size(); i += 2)
+                if ((edges.get(i) == a && edges.get(i + 1) == b) || (edges.get(i) == b && edges.get(i + 1) == a))
+                    return true;
+
+            return false;
+        }
+    }
+}
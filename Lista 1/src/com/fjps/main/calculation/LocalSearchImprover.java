@@ -0,0 +1,248 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * 2-opt and Or-opt local search, run until no improving move is left.
+ * <p>
+ * Moves are searched around one vertex at a time and only towards its <code>k</code> nearest neighbours. A move
+ * adding edge <code>(a, c)</code> is considered only if that edge is shorter than the removed edge at
+ * <code>a</code>, so the neighbour list is scanned just until this bound. Vertexes wait in a queue
+ * ("don't-look bits"): the queue starts with all of them and a vertex returns to it only when one of its tour
+ * edges changes. A pass over <code>n</code> vertexes costs thus <code>O(n * k)</code> evaluations.
+ * <p>
+ * Or-opt moves a segment of 1 to 3 vertexes between two other neighbouring vertexes, possibly reversed.
+ * Every move is made of 2-opt flips of a <code>Tour</code> chosen by <code>Tours.of()</code>, so big tours are
+ * kept in a two-level list.
+ */
+public class LocalSearchImprover implements TourImprover {
+
+    public static final int DEFAULT_NEIGHBOURS = 10;
+
+    private static final int MAX_SEGMENT = 3;
+
+    /**
+     * Relative length change treated as rounding noise rather than improvement.
+     */
+    private static final double TOLERANCE = 1e-12;
+
+    private final int neighbours;
+
+    public LocalSearchImprover() {
+        this(DEFAULT_NEIGHBOURS);
+    }
+
+    /**
+     * @param neighbours length of candidate lists
+     */
+    public LocalSearchImprover(int neighbours) {
+        if (neighbours < 1)
+            throw new IllegalArgumentException("At least one neighbour is needed, got " + neighbours + ".");
+
+        this.neighbours = neighbours;
+    }
+
+    @Override
+    public int[] improve(DistanceGraph graph, int[] tour, SolveOptions options) {
+        if (tour.length < 5)
+            return tour.clone();
+
+        int[] improved = new Search(graph, tour, NeighbourLists.nearest(graph, neighbours)).run(options);
+
+        if (options.isReporting()) {
+            double length = Tours.length(graph, improved);
+            if (length < Tours.length(graph, tour))
+                options.improved(improved, length);
+        }
+
+        return improved;
+    }
+
+    /**
+     * State of a single improvement run.
+     */
+    private static final class Search {
+
+        private final DistanceGraph graph;
+        private final int n;
+        private final Tour tour;
+        private final int[][] nearest;
+
+        private final int[] queue;
+        private final boolean[] queued;
+        private int head;
+        private int size;
+
+        Search(DistanceGraph graph, int[] tour, int[][] nearest) {
+            this.graph = graph;
+            this.n = tour.length;
+            this.tour = Tours.of(tour);
+            this.nearest = nearest;
+            this.queue = new int[n];
+            this.queued = new boolean[n];
+
+            for (int v : tour)
+                push(v);
+        }
+
+        /**
+         * @param options only deadline and cancellation are checked, once per vertex taken from the queue
+         */
+        int[] run(SolveOptions options) {
+            while (size > 0 && !options.isStopped()) {
+                int a = queue[head];
+                head = (head + 1) % n;
+                size--;
+                queued[a] = false;
+
+                boolean improved;
+                do {
+                    improved = twoOpt(a) || orOpt(a);
+                } while (improved);
+            }
+
+            return tour.toArray();
+        }
+
+        private void push(int v) {
+            if (!queued[v]) {
+                queued[v] = true;
+                queue[(head + size++) % n] = v;
+            }
+        }
+
+        private double d(int a, int b) {
+            return graph.getDistance(a, b);
+        }
+
+        private int step(int v, boolean forward) {
+            return tour.step(v, forward);
+        }
+
+        private static boolean improves(double change, double removed) {
+            return change < -TOLERANCE * Math.abs(removed);
+        }
+
+        /**
+         * Replaces edges <code>(a, b)</code> and <code>(c, d)</code> with <code>(a, c)</code> and
+         * <code>(b, d)</code>; <code>b, d</code> follow <code>a, c</code> in the same direction.
+         */
+        private boolean twoOpt(int a) {
+            for (int direction = 0; direction < 2; direction++) {
+                boolean forward = direction == 0;
+                int b = step(a, forward);
+                double removed = d(a, b);
+
+                for (int c : nearest[a]) {
+                    double added = d(a, c);
+                    if (added >= removed)
+                        break;
+
+                    int d = step(c, forward);
+                    if (c == b || d == a)
+                        continue;
+
+                    double change = added + d(b, d) - removed - d(c, d);
+                    if (improves(change, removed + d(c, d))) {
+                        tour.flip(a, b, c, d);
+                        push(b);
+                        push(c);
+                        push(d);
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Moves segment <code>s1 .. s2</code> (following <code>p</code>, followed by <code>x</code>) between
+         * neighbouring <code>c</code> and <code>d</code>: as <code>c s1 .. s2 d</code> or <code>c s2 .. s1 d</code>.
+         */
+        private boolean orOpt(int s1) {
+            for (int direction = 0; direction < 2; direction++) {
+                boolean forward = direction == 0;
+                int p = step(s1, !forward);
+                int s2 = s1;
+
+                for (int length = 1; length <= MAX_SEGMENT && length + 2 < n; length++) {
+                    if (length > 1)
+                        s2 = step(s2, forward);
+
+                    int x = step(s2, forward);
+                    if (x == p)
+                        break;
+
+                    double removed = d(p, s1) + d(s2, x) - d(p, x);
+                    if (!(removed > 0.0))
+                        continue;
+
+                    for (int v : nearest[s1]) {
+                        double added = d(s1, v);
+                        if (added >= removed)
+                            break;
+
+                        // v becomes predecessor of s1: c s1 .. s2 d
+                        int c = v;
+                        int d = step(v, forward);
+                        if (outside(c, d, p, s1, length, forward)) {
+                            double change = added + d(s2, d) - d(c, d) - removed;
+                            if (improves(change, removed + d(c, d))) {
+                                move(p, s1, s2, x, c, d, false);
+                                return true;
+                            }
+                        }
+
+                        // v becomes successor of s1: c s2 .. s1 d
+                        d = v;
+                        c = step(v, !forward);
+                        if (outside(c, d, p, s1, length, forward)) {
+                            double change = added + d(c, s2) - d(c, d) - removed;
+                            if (improves(change, removed + d(c, d))) {
+                                move(p, s1, s2, x, c, d, true);
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @return <code>true</code> if neither <code>c</code> nor <code>d</code> belongs to segment and
+         * <code>(c, d)</code> does not touch <code>p</code>.
+         */
+        private boolean outside(int c, int d, int p, int s1, int length, boolean forward) {
+            if (c == p || d == p)
+                return false;
+
+            for (int i = 0, v = s1; i < length; i++, v = step(v, forward))
+                if (v == c || v == d)
+                    return false;
+
+            return true;
+        }
+
+        /**
+         * Segment move as sequence of 2-opt moves: first two put the segment reversed between <code>c</code> and
+         * <code>d</code>, the third one turns it back.
+         */
+        private void move(int p, int s1, int s2, int x, int c, int d, boolean reversed) {
+            tour.flip(p, s1, c, d);
+            if (c != x)
+                tour.flip(p, c, x, s2);
+            if (!reversed)
+                tour.flip(c, s2, s1, d);
+
+            push(p);
+            push(x);
+            push(c);
+            push(d);
+            push(s1);
+            push(s2);
+        }
+    }
+}
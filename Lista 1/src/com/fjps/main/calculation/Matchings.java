@@ -0,0 +1,211 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.Arrays;
+
+/**
+ * Perfect matching algorithms over a subset of vertexes of <code>DistanceGraph</code>. Matchings are returned as
+ * flat <code>int[]</code> lists of vertex index pairs: <code>{u0, v0, u1, v1, ...}</code>.
+ */
+public final class Matchings {
+
+    /**
+     * Largest weight after scaling distances to integers. Leaves plenty of room for blossom's dual variables
+     * in <code>long</code>, while keeping relative rounding error about <code>1e-12</code>.
+     */
+    private static final double SCALE = 1L << 40;
+
+    /**
+     * Number of nearest neighbours of every vertex taken into the first, sparse blossom run.
+     */
+    private static final int CANDIDATES = 10;
+
+    private Matchings() {
+    }
+
+    /**
+     * Exact minimum weight perfect matching, found with Edmonds' weighted blossom algorithm in <code>O(n^3)</code>.
+     * <p>
+     * Distances are turned into weights <code>max - distance</code>, scaled to even <code>long</code> values and
+     * the maximum weight matching among maximum cardinality ones is searched for.
+     * Algorithm is described e.g. at:
+     * <a href="https://courses.engr.illinois.edu/cs598csc/sp2010/Lectures/Lecture11.pdf">Illinois University Site</a>.
+     * <p>
+     * Blossom is run on sparse candidate set first (<code>CANDIDATES</code> nearest neighbours of every vertex).
+     * Then all remaining pairs are priced against the final dual solution - if none of them violates its dual
+     * constraint (and the matching is perfect), the matching is optimal for the complete graph as well.
+     * Otherwise violating pairs (and all pairs containing single vertex) are added and blossom is run again.
+     *
+     * @param graph    graph containing distances between vertexes
+     * @param vertices indexes of vertexes to be matched
+     * @return Edges of matching as pairs of vertex indexes.
+     */
+    public static int[] minimumPerfectMatching(DistanceGraph graph, int[] vertices) {
+        int n = vertices.length;
+
+        double maxDistance = 0.0;
+        for (int i = 0; i < n - 1; i++)
+            for (int j = i + 1; j < n; j++) {
+                double distance = graph.getDistance(vertices[i], vertices[j]);
+                if (distance < Double.POSITIVE_INFINITY)
+                    maxDistance = Math.max(maxDistance, distance);
+            }
+
+        double scale = maxDistance > 0.0 ? SCALE / maxDistance : 1.0;
+
+        int[][] candidates = nearestNeighbours(graph, vertices);
+        int[] added = new int[n];
+        int[] mates;
+
+        while (true) {
+            long pairs = 0;
+            for (int[] row : candidates)
+                pairs += row.length;
+            if (pairs > Integer.MAX_VALUE / 2)
+                throw new IllegalArgumentException("Too many candidate pairs for blossom: " + pairs + ".");
+
+            int edgesAmount = (int) pairs;
+            int[] ends = new int[2 * edgesAmount];
+            long[] weights = new long[edgesAmount];
+            int k = 0;
+
+            for (int i = 0; i < n; i++)
+                for (int j : candidates[i]) {
+                    ends[2 * k] = i;
+                    ends[2 * k + 1] = j;
+                    weights[k++] = weight(graph, vertices, i, j, maxDistance, scale);
+                }
+
+            WeightedBlossom blossom = new WeightedBlossom(n, ends, weights, true);
+            mates = blossom.solve();
+
+            boolean optimal = true;
+            for (int i = 0; i < n - 1; i++) {
+                int[] row = candidates[i];
+                int p = 0;
+                int count = 0;
+
+                for (int j = i + 1; j < n; j++) {
+                    while (p < row.length && row[p] < j)
+                        p++;
+                    if (p < row.length && row[p] == j)
+                        continue;
+                    if (graph.getDistance(vertices[i], vertices[j]) == Double.POSITIVE_INFINITY)
+                        continue;
+
+                    if (mates[i] < 0 || mates[j] < 0
+                            || blossom.pairSlack(i, j, weight(graph, vertices, i, j, maxDistance, scale)) < 0)
+                        added[count++] = j;
+                }
+
+                if (count > 0) {
+                    candidates[i] = merge(row, added, count);
+                    optimal = false;
+                }
+            }
+
+            if (optimal)
+                break;
+        }
+
+        int[] matching = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; i++)
+            if (mates[i] > i) {
+                matching[size++] = vertices[i];
+                matching[size++] = vertices[mates[i]];
+            }
+
+        return Arrays.copyOf(matching, size);
+    }
+
+    private static long weight(DistanceGraph graph, int[] vertices, int i, int j, double maxDistance, double scale) {
+        return 2 * Math.round((maxDistance - graph.getDistance(vertices[i], vertices[j])) * scale);
+    }
+
+    /**
+     * @return For every <code>i</code>, sorted positions <code>j &gt; i</code> such that <code>j</code> is among
+     * <code>CANDIDATES</code> nearest neighbours of <code>i</code> or the other way round.
+     */
+    private static int[][] nearestNeighbours(DistanceGraph graph, int[] vertices) {
+        int n = vertices.length;
+        int[][] nearest = NeighbourLists.nearest(graph, vertices, CANDIDATES);
+
+        int[] sizes = new int[n];
+        for (int i = 0; i < n; i++)
+            for (int j : nearest[i])
+                sizes[Math.min(i, j)]++;
+
+        int[][] pairs = new int[n][];
+        for (int i = 0; i < n; i++)
+            pairs[i] = new int[sizes[i]];
+
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < n; i++)
+            for (int j : nearest[i])
+                pairs[Math.min(i, j)][sizes[Math.min(i, j)]++] = Math.max(i, j);
+
+        for (int i = 0; i < n; i++) {
+            int[] row = pairs[i];
+            Arrays.sort(row);
+
+            int size = 0;
+            for (int k = 0; k < row.length; k++)
+                if (size == 0 || row[size - 1] != row[k])
+                    row[size++] = row[k];
+            pairs[i] = size == row.length ? row : Arrays.copyOf(row, size);
+        }
+
+        return pairs;
+    }
+
+    /**
+     * @return Sorted union of sorted, disjoint <code>row</code> and <code>added[0 .. count-1]</code>.
+     */
+    private static int[] merge(int[] row, int[] added, int count) {
+        int[] merged = new int[row.length + count];
+        int p = 0, q = 0;
+
+        for (int k = 0; k < merged.length; k++)
+            merged[k] = q == count || (p < row.length && row[p] < added[q]) ? row[p++] : added[q++];
+
+        return merged;
+    }
+
+    /**
+     * Greedy heuristic - every still single vertex is matched with its nearest single neighbour.
+     * Fast (<code>O(n^2)</code>), but with no guarantee on weight and it may leave vertexes single
+     * on incomplete graphs.
+     *
+     * @param graph    graph containing distances between vertexes
+     * @param vertices indexes of vertexes to be matched
+     * @return Edges of matching as pairs of vertex indexes.
+     */
+    public static int[] greedyMatching(DistanceGraph graph, int[] vertices) {
+        boolean[] matched = new boolean[vertices.length];
+        int[] matching = new int[vertices.length];
+        int size = 0;
+
+        for (int i = 0; i < vertices.length; i++) {
+            if (matched[i])
+                continue;
+
+            int nearest = -1;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < vertices.length; j++)
+                if (j != i && !matched[j] && graph.getDistance(vertices[i], vertices[j]) < nearestDistance) {
+                    nearest = j;
+                    nearestDistance = graph.getDistance(vertices[i], vertices[j]);
+                }
+
+            if (nearest >= 0) {
+                matched[i] = matched[nearest] = true;
+                matching[size++] = vertices[i];
+                matching[size++] = vertices[nearest];
+            }
+        }
+
+        return Arrays.copyOf(matching, size);
+    }
+}
@@ -0,0 +1,237 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.PointSetGraph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Candidate lists of nearest neighbours, used to restrict heuristics to promising edges only.
+ */
+public final class NeighbourLists {
+
+    private NeighbourLists() {
+    }
+
+    /**
+     * @param graph graph containing distances between vertexes
+     * @param k     length of every list
+     * @return For every vertex, up to <code>k</code> nearest vertexes connected with it, ordered by distance.
+     */
+    public static int[][] nearest(DistanceGraph graph, int k) {
+        int[] vertices = new int[graph.getNumberVertexes()];
+        for (int v = 0; v < vertices.length; v++)
+            vertices[v] = v;
+
+        return nearest(graph, vertices, k);
+    }
+
+    /**
+     * Version of <code>nearest()</code> restricted to a subset of vertexes. Lists are computed in parallel, each in
+     * a single pass keeping sorted <code>k</code> best candidates. Points of <code>PointSetGraph</code> are searched
+     * in a uniform grid instead, see <code>spatial()</code>.
+     *
+     * @param graph    graph containing distances between vertexes
+     * @param vertices indexes of vertexes taken into account
+     * @param k        length of every list
+     * @return For every <code>i</code>, positions in <code>vertices</code> of up to <code>k</code> vertexes nearest to
+     * <code>vertices[i]</code>, ordered by distance.
+     */
+    public static int[][] nearest(DistanceGraph graph, int[] vertices, int k) {
+        if (graph instanceof PointSetGraph)
+            return spatial((PointSetGraph) graph, vertices, k);
+
+        int n = vertices.length;
+        int size = Math.min(k, n - 1);
+        int[][] lists = new int[n][];
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Candidates candidates = new Candidates(size);
+
+            for (int j = 0; j < n && size > 0; j++)
+                if (j != i)
+                    candidates.offer(j, graph.getDistance(vertices[i], vertices[j]));
+
+            lists[i] = candidates.toArray();
+        });
+
+        return lists;
+    }
+
+    /**
+     * Nearest neighbours of points, found in a uniform grid of square (in space: cubic) cells holding about two
+     * points each - <code>O(n k)</code> expected time for evenly spread points instead of <code>O(n^2)</code>.
+     * Every axis gets as many cells as its extent needs, so elongated sets get long, narrow grids; axes shorter than
+     * a cell get a single one.
+     * <p>
+     * Cells around the cell of a point are searched ring by ring (cells at Chebyshev distance <code>r</code>).
+     * Any point beyond ring <code>r</code> is at least <code>r</code> cell widths away along some axis, so it
+     * cannot be closer than that in any <code>PointSetGraph.Metric</code> - search stops once <code>k</code>
+     * candidates are found within this bound.
+     */
+    static int[][] spatial(PointSetGraph graph, int[] vertices, int k) {
+        int n = vertices.length;
+        int size = Math.min(k, n - 1);
+        int dimensions = graph.getDimensions();
+        int[][] lists = new int[n][];
+
+        double[] low = new double[3];
+        double[] extent = new double[3];
+        for (int d = 0; d < dimensions; d++) {
+            double high = Double.NEGATIVE_INFINITY;
+            low[d] = Double.POSITIVE_INFINITY;
+            for (int v : vertices) {
+                low[d] = Math.min(low[d], graph.getCoordinate(v, d));
+                high = Math.max(high, graph.getCoordinate(v, d));
+            }
+            extent[d] = Math.max(0.0, high - low[d]);
+        }
+
+        double width = cellWidth(extent, dimensions, Math.max(1.0, n / 2.0));
+        int[] sides = {1, 1, 1};
+        for (int d = 0; d < dimensions; d++)
+            sides[d] = Math.max(1, (int) Math.ceil(extent[d] / width));
+
+        int[] cells = new int[3 * n];
+        int[] starts = new int[sides[0] * sides[1] * sides[2] + 1];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                int cell = (int) ((graph.getCoordinate(vertices[i], d) - low[d]) / width);
+                cells[3 * i + d] = Math.min(sides[d] - 1, cell);
+            }
+            starts[index(cells, 3 * i, sides) + 1]++;
+        }
+        for (int c = 0; c + 1 < starts.length; c++)
+            starts[c + 1] += starts[c];
+
+        int[] points = new int[n];
+        int[] filled = Arrays.copyOf(starts, starts.length - 1);
+        for (int i = 0; i < n; i++)
+            points[filled[index(cells, 3 * i, sides)]++] = i;
+
+        int rings = Math.max(sides[0], Math.max(sides[1], sides[2]));
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Candidates candidates = new Candidates(size);
+            int x = cells[3 * i], y = cells[3 * i + 1], z = cells[3 * i + 2];
+
+            for (int r = 0; r < rings && size > 0; r++) {
+                if (candidates.isFull() && candidates.worst() <= (r - 1) * width)
+                    break;
+
+                // cells inside the grid only; rows crossing the inside of the ring take its two ends only
+                for (int c = Math.max(-r, -z); c <= Math.min(r, sides[2] - 1 - z); c++)
+                    for (int b = Math.max(-r, -y); b <= Math.min(r, sides[1] - 1 - y); b++) {
+                        int row = ((z + c) * sides[1] + y + b) * sides[0] + x;
+
+                        if (Math.abs(b) == r || Math.abs(c) == r) {
+                            for (int a = Math.max(-r, -x); a <= Math.min(r, sides[0] - 1 - x); a++)
+                                offer(graph, vertices, i, starts, points, row + a, candidates);
+                        } else {
+                            if (x - r >= 0)
+                                offer(graph, vertices, i, starts, points, row - r, candidates);
+                            if (x + r < sides[0])
+                                offer(graph, vertices, i, starts, points, row + r, candidates);
+                        }
+                    }
+            }
+
+            lists[i] = candidates.toArray();
+        });
+
+        return lists;
+    }
+
+    /**
+     * Offers all points of cell <code>at</code> but <code>i</code> itself.
+     */
+    private static void offer(PointSetGraph graph, int[] vertices, int i, int[] starts, int[] points, int at,
+                              Candidates candidates) {
+        for (int p = starts[at]; p < starts[at + 1]; p++)
+            if (points[p] != i)
+                candidates.offer(points[p], graph.getDistance(vertices[i], vertices[points[p]]));
+    }
+
+    /**
+     * Width of cubic cell giving about <code>cells</code> cells over the bounding box. Axes shorter than a cell
+     * get a single cell anyway, so they are left out of the volume and the width is recomputed for the others.
+     */
+    private static double cellWidth(double[] extent, int dimensions, double cells) {
+        boolean[] flat = new boolean[dimensions];
+        for (int d = 0; d < dimensions; d++)
+            flat[d] = extent[d] == 0.0;
+
+        double width = 1.0; // all points equal
+        for (boolean changed = true; changed; ) {
+            changed = false;
+
+            double volume = 1.0;
+            int axes = 0;
+            for (int d = 0; d < dimensions; d++)
+                if (!flat[d]) {
+                    volume *= extent[d];
+                    axes++;
+                }
+            if (axes == 0)
+                break;
+
+            width = Math.pow(volume / cells, 1.0 / axes);
+            for (int d = 0; d < dimensions; d++)
+                if (!flat[d] && extent[d] < width) {
+                    flat[d] = true;
+                    changed = true;
+                }
+        }
+
+        return width;
+    }
+
+    /**
+     * @return Index of cell whose coordinates are <code>cells[from .. from+2]</code>.
+     */
+    private static int index(int[] cells, int from, int[] sides) {
+        return (cells[from + 2] * sides[1] + cells[from + 1]) * sides[0] + cells[from];
+    }
+
+    /**
+     * Sorted <code>size</code> nearest candidates seen so far.
+     */
+    private static final class Candidates {
+
+        private final int[] nearest;
+        private final double[] distances;
+        private int found;
+
+        Candidates(int size) {
+            nearest = new int[Math.max(size, 0)];
+            distances = new double[nearest.length];
+        }
+
+        void offer(int j, double distance) {
+            int size = nearest.length;
+            if (distance == Double.POSITIVE_INFINITY || (found == size && distance >= distances[size - 1]))
+                return;
+
+            int position = found < size ? found++ : size - 1;
+            while (position > 0 && distances[position - 1] > distance) {
+                nearest[position] = nearest[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            nearest[position] = j;
+            distances[position] = distance;
+        }
+
+        boolean isFull() {
+            return found == nearest.length;
+        }
+
+        double worst() {
+            return distances[found - 1];
+        }
+
+        int[] toArray() {
+            return found == nearest.length ? nearest : Arrays.copyOf(nearest, found);
+        }
+    }
+}
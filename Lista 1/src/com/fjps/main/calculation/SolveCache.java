@@ -0,0 +1,272 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.DistanceMatrix;
+import com.fjps.main.graph.Graph;
+import com.fjps.main.graph.GraphFingerprint;
+import com.fjps.main.graph.MetricClosure;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of everything computed for a graph - metric closures, minimum spanning trees and final
+ * tours - keyed by <code>GraphFingerprint</code>, so identical graphs are recognized whatever object they come in.
+ * <p>
+ * Cache is bounded both by number of entries and by their estimated size in bytes; least recently used entries are
+ * evicted as soon as either bound is exceeded. Value bigger than the whole byte budget is returned, but not kept.
+ * Thread-safe - lookups are synchronized, values are computed outside of the lock (two threads missing the same key
+ * may both compute it, last one wins). Cached values are never modified: arrays are copied on the way out, closures
+ * are shared and must be treated as read-only.
+ */
+public final class SolveCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    /**
+     * Estimated cost of a map entry with its key and fingerprint.
+     */
+    private static final long ENTRY_BYTES = 128;
+
+    private enum Kind {
+        METRIC_CLOSURE, SPANNING_TREE, TOUR
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Value> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SolveCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries largest number of kept values
+     * @param maxBytes   largest estimated size of kept values
+     */
+    public SolveCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("Cache has to hold something, got " + maxEntries + " entries and "
+                    + maxBytes + " bytes.");
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param graph any graph
+     * @return Shortest paths lengths between all vertexes of <code>graph</code> - see <code>MetricClosure.of()</code>.
+     * Shared with other callers, must not be modified.
+     */
+    public DistanceMatrix metricClosure(DistanceGraph graph) {
+        return metricClosure(GraphFingerprint.of(graph), graph);
+    }
+
+    /**
+     * @param fingerprint fingerprint of <code>graph</code>, if the caller has it already
+     */
+    public DistanceMatrix metricClosure(GraphFingerprint fingerprint, DistanceGraph graph) {
+        Key key = new Key(fingerprint, Kind.METRIC_CLOSURE, null);
+
+        return this.<DistanceMatrix>get(key, () -> {
+            DistanceMatrix closure = MetricClosure.of(graph);
+            long n = closure.getNumberVertexes();
+            return new Value(closure, 8 * n * n + 64 * n);
+        });
+    }
+
+    /**
+     * Cached <code>graph.assureMetric()</code> - closure is taken from (or put into) this cache.
+     */
+    public void assureMetric(Graph<?> graph) {
+        graph.assureMetric(metricClosure(graph));
+    }
+
+    /**
+     * @param graph any graph
+     * @return Edges of minimum spanning tree as pairs of vertex indexes, see
+     * <code>SpanningTrees.minimumSpanningTree()</code>; a copy.
+     */
+    public int[] minimumSpanningTree(DistanceGraph graph) {
+        return minimumSpanningTree(GraphFingerprint.of(graph), graph);
+    }
+
+    /**
+     * @param fingerprint fingerprint of <code>graph</code>, if the caller has it already
+     */
+    public int[] minimumSpanningTree(GraphFingerprint fingerprint, DistanceGraph graph) {
+        Key key = new Key(fingerprint, Kind.SPANNING_TREE, null);
+
+        return this.<int[]>get(key, () -> {
+            int[] tree = SpanningTrees.minimumSpanningTree(graph);
+            return new Value(tree, 16 + 4L * tree.length);
+        }).clone();
+    }
+
+    /**
+     * @return Tour found by <code>solver</code> for graph of <code>fingerprint</code>, <code>null</code> if there
+     * is none.
+     */
+    CachedTour tour(GraphFingerprint fingerprint, Object solver) {
+        return (CachedTour) lookup(new Key(fingerprint, Kind.TOUR, solver));
+    }
+
+    void putTour(GraphFingerprint fingerprint, Object solver, SolveResult<?> result) {
+        int[] tour = result.getTour();
+        put(new Key(fingerprint, Kind.TOUR, solver),
+                new Value(new CachedTour(tour, result.getLowerBound()), 32 + 4L * tour.length));
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Number of kept values.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Estimated size of kept values.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Drops all values; counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries (%.1f of %.1f MB), %d hits, %d misses, %d evictions", entries.size(),
+                bytes / 1e6, maxBytes / 1e6, hits, misses, evictions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(Key key, Supplier<Value> compute) {
+        Object cached = lookup(key);
+        if (cached != null)
+            return (V) cached;
+
+        Value value = compute.get();
+        put(key, value);
+        return (V) value.value;
+    }
+
+    private synchronized Object lookup(Key key) {
+        Value value = entries.get(key);
+        if (value == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return value.value;
+    }
+
+    private synchronized void put(Key key, Value value) {
+        long size = value.bytes + ENTRY_BYTES;
+        if (size > maxBytes)
+            return;
+
+        Value replaced = entries.put(key, value);
+        if (replaced != null)
+            bytes -= replaced.bytes + ENTRY_BYTES;
+        bytes += size;
+
+        Iterator<Map.Entry<Key, Value>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            Value evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= evicted.bytes + ENTRY_BYTES;
+            evictions++;
+        }
+    }
+
+    /**
+     * Tour with the lower bound proven by the solver which found it.
+     */
+    static final class CachedTour {
+
+        private final int[] tour;
+        private final double lowerBound;
+
+        CachedTour(int[] tour, double lowerBound) {
+            this.tour = tour;
+            this.lowerBound = lowerBound;
+        }
+
+        int[] getTour() {
+            return tour;
+        }
+
+        double getLowerBound() {
+            return lowerBound;
+        }
+    }
+
+    private static final class Value {
+
+        private final Object value;
+        private final long bytes;
+
+        Value(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Fingerprint, kind of value and - for tours - solver instance which computed it.
+     */
+    private static final class Key {
+
+        private final GraphFingerprint fingerprint;
+        private final Kind kind;
+        private final Object owner;
+
+        Key(GraphFingerprint fingerprint, Kind kind, Object owner) {
+            this.fingerprint = fingerprint;
+            this.kind = kind;
+            this.owner = owner;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return kind == other.kind && owner == other.owner && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * fingerprint.hashCode() + kind.hashCode()) + Objects.hashCode(owner);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.fjps.main.calculation;
+
+/**
+ * Limits and callbacks of a single <code>solve()</code>: deadline, cancellation token and listener of improving
+ * tours. Immutable - <code>cancelledBy()</code> and <code>reportingTo()</code> return modified copies, e.g.
+ * <code>SolveOptions.withBudget(200).cancelledBy(token).reportingTo(listener)</code>.
+ * <p>
+ * Deadline is an instant of <code>System.nanoTime()</code>, so a budget starts running when options are created.
+ */
+public final class SolveOptions {
+
+    private static final SolveOptions UNLIMITED = new SolveOptions(false, 0, null, null);
+
+    private final boolean limited;
+    private final long deadline;
+    private final CancellationToken token;
+    private final ImprovementListener listener;
+
+    private SolveOptions(boolean limited, long deadline, CancellationToken token, ImprovementListener listener) {
+        this.limited = limited;
+        this.deadline = deadline;
+        this.token = token;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Options without deadline, cancellation and listener - solver runs to its natural end.
+     */
+    public static SolveOptions unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @param millis wall-clock time from now
+     */
+    public static SolveOptions withBudget(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("Time budget cannot be negative, got " + millis + ".");
+
+        return withDeadline(System.nanoTime() + millis * 1000000L);
+    }
+
+    /**
+     * @param deadline instant of <code>System.nanoTime()</code>
+     */
+    public static SolveOptions withDeadline(long deadline) {
+        return new SolveOptions(true, deadline, null, null);
+    }
+
+    public SolveOptions cancelledBy(CancellationToken token) {
+        return new SolveOptions(limited, deadline, token, listener);
+    }
+
+    public SolveOptions reportingTo(ImprovementListener listener) {
+        return new SolveOptions(limited, deadline, token, listener);
+    }
+
+    /**
+     * @return Copy with the same deadline and token, but without listener - for stages of a solver which reports
+     * their results itself.
+     */
+    public SolveOptions silent() {
+        return listener == null ? this : new SolveOptions(limited, deadline, token, null);
+    }
+
+    /**
+     * @return <code>true</code> if deadline passed or the solve was cancelled.
+     */
+    public boolean isStopped() {
+        return (token != null && token.isCancelled()) || (limited && System.nanoTime() - deadline >= 0);
+    }
+
+    public boolean hasDeadline() {
+        return limited;
+    }
+
+    /**
+     * @return Instant of <code>System.nanoTime()</code>, meaningful only if <code>hasDeadline()</code>.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return Nanoseconds left until deadline, <code>0</code> if it passed, <code>Long.MAX_VALUE</code> if there is
+     * none.
+     */
+    public long remainingNanos() {
+        return limited ? Math.max(deadline - System.nanoTime(), 0) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return <code>true</code> if there is a listener - solvers may skip copying tours otherwise.
+     */
+    public boolean isReporting() {
+        return listener != null;
+    }
+
+    /**
+     * Passes a copy of tour to the listener, if there is one. Solvers call it only for tours shorter than all
+     * reported before.
+     *
+     * @param tour   found tour
+     * @param length length of <code>tour</code>
+     */
+    public void improved(int[] tour, double length) {
+        if (listener != null)
+            listener.improved(tour.clone(), length);
+    }
+}
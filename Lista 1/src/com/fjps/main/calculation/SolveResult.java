@@ -0,0 +1,206 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.Edge;
+import com.fjps.main.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a single solve: tour, its cost, lower bound on the optimum (if the solver proves any) and
+ * time and iterations of every stage. Safe to share between threads.
+ * <p>
+ * Result keeps a reference to the solved graph, only to read vertex labels in <code>getPathAsString()</code>.
+ */
+public final class SolveResult<T extends Number> {
+
+    private final DistanceGraph graph;
+    private final int[] tour;
+    private final double cost;
+    private final double lowerBound;
+    private final List<Stage> stages;
+    private final List<Edge<T>> route;
+
+    /**
+     * @param graph      solved graph
+     * @param tour       found tour, as permutation of vertex indexes; copied
+     * @param lowerBound proven lower bound on the optimum, <code>-inf</code> if there is none
+     * @param stages     stages of the solve, in order; copied
+     */
+    SolveResult(DistanceGraph graph, int[] tour, double lowerBound, List<Stage> stages) {
+        this(graph, tour.clone(), Tours.length(graph, tour), lowerBound,
+                Collections.unmodifiableList(new ArrayList<>(stages)), null);
+    }
+
+    private SolveResult(DistanceGraph graph, int[] tour, double cost, double lowerBound, List<Stage> stages,
+                        List<Edge<T>> route) {
+        this.graph = graph;
+        this.tour = tour;
+        this.cost = cost;
+        this.lowerBound = lowerBound;
+        this.stages = stages;
+        this.route = route;
+    }
+
+    /**
+     * @param graph object graph whose indexes were solved
+     * @return Copy of this result with tour translated to edges of <code>graph</code>.
+     */
+    SolveResult<T> withRoute(Graph<T> graph) {
+        return new SolveResult<>(graph, tour, cost, lowerBound, stages,
+                Collections.unmodifiableList(Tours.route(graph, tour)));
+    }
+
+    /**
+     * @param tour  better tour of the same graph
+     * @param stage stage which found it
+     * @return Copy of this result with <code>tour</code> and <code>stage</code> appended to stages.
+     */
+    SolveResult<T> improved(int[] tour, Stage stage) {
+        List<Stage> stages = new ArrayList<>(this.stages);
+        stages.add(stage);
+
+        return new SolveResult<>(graph, tour, lowerBound, stages);
+    }
+
+    /**
+     * @return Length of the tour.
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return Tour as permutation of vertex indexes; a copy.
+     */
+    public int[] getTour() {
+        return tour.clone();
+    }
+
+    /**
+     * @return Edges of the tour in tour order, <code>null</code> if the solved graph was not a <code>Graph</code>.
+     */
+    public List<Edge<T>> getRoute() {
+        return route;
+    }
+
+    /**
+     * @return Proven lower bound on the optimum, <code>-inf</code> if the solver gives none.
+     */
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return Relative distance between the tour and the lower bound; <code>0</code> if the tour is optimal,
+     * <code>+inf</code> if there is no bound.
+     */
+    public double getGap() {
+        return cost == lowerBound ? 0.0 : (cost - lowerBound) / Math.abs(cost);
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return Total time of all stages, in nanoseconds.
+     */
+    public long getNanos() {
+        long nanos = 0;
+        for (Stage stage : stages)
+            nanos += stage.getNanos();
+
+        return nanos;
+    }
+
+    /**
+     * @return Total iterations of all stages.
+     */
+    public long getIterations() {
+        long iterations = 0;
+        for (Stage stage : stages)
+            iterations += stage.getIterations();
+
+        return iterations;
+    }
+
+    public String getPathAsString() {
+        StringBuilder builder = new StringBuilder("path:");
+
+        for (int v : tour)
+            builder.append(" ").append(graph.getLabel(v));
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("cost ").append(cost);
+        if (lowerBound > Double.NEGATIVE_INFINITY)
+            builder.append(String.format(", lower bound %s, gap %.4f%%", lowerBound, 100 * getGap()));
+
+        for (Stage stage : stages)
+            builder.append(", ").append(stage);
+
+        return builder.toString();
+    }
+
+    /**
+     * Time and iterations of one stage of a solve.
+     */
+    public static final class Stage {
+
+        private final String name;
+        private final long nanos;
+        private final long iterations;
+
+        /**
+         * @param name       what the stage does
+         * @param nanos      wall-clock time of the stage
+         * @param iterations moves, subproblems, subsets etc. made by the stage; <code>0</code> if it does not
+         *                   count any
+         */
+        public Stage(String name, long nanos, long iterations) {
+            this.name = name;
+            this.nanos = nanos;
+            this.iterations = iterations;
+        }
+
+        /**
+         * @param name  what the stage does
+         * @param start <code>System.nanoTime()</code> at its start; stage ends now
+         */
+        static Stage since(String name, long start, long iterations) {
+            return new Stage(name, System.nanoTime() - start, iterations);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @return Iterations per second, <code>0</code> if the stage does not count them.
+         */
+        public double getIterationsPerSecond() {
+            return iterations * 1e9 / Math.max(nanos, 1);
+        }
+
+        @Override
+        public String toString() {
+            return iterations == 0 ? String.format("%s %.3f s", name, nanos / 1e9)
+                    : String.format("%s %.3f s (%d iterations, %.0f/s)", name, nanos / 1e9, iterations,
+                    getIterationsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.EdgeIndex;
+
+import java.util.Arrays;
+
+/**
+ * Minimum spanning tree algorithms working on vertex indexes. Trees are returned as flat <code>int[]</code>
+ * lists of vertex index pairs: <code>{u0, v0, u1, v1, ...}</code>.
+ */
+public final class SpanningTrees {
+
+    private SpanningTrees() {
+    }
+
+    /**
+     * Chooses algorithm by graph density: Prim's for complete graphs, Kruskal's otherwise.
+     *
+     * @param graph graph on which we are looking for a MST
+     * @return Edges of minimum spanning tree as pairs of vertex indexes.
+     * @throws IllegalArgumentException when graph is not connected
+     */
+    public static int[] minimumSpanningTree(DistanceGraph graph) {
+        return graph.isComplete() ? prim(graph) : kruskal(graph);
+    }
+
+    /**
+     * Dense-graph Prim's Algorithm - <code>O(n^2)</code> with no heap. Distance of every vertex to the tree is kept
+     * in primitive <code>keys</code> array; one pass per step both relaxes keys and picks the next vertex.
+     *
+     * @param graph graph on which we are looking for a MST
+     * @return Edges of minimum spanning tree as pairs of vertex indexes.
+     * @throws IllegalArgumentException when graph is not connected
+     */
+    public static int[] prim(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+
+        double[] keys = new double[n];
+        int[] parents = new int[n];
+        boolean[] inTree = new boolean[n];
+
+        Arrays.fill(keys, Double.POSITIVE_INFINITY);
+        Arrays.fill(parents, -1);
+
+        int[] mst = new int[2 * Math.max(n - 1, 0)];
+        int size = 0;
+        int current = 0;
+
+        for (int step = 0; step < n; step++) {
+            inTree[current] = true;
+            if (parents[current] >= 0) {
+                mst[size++] = parents[current];
+                mst[size++] = current;
+            }
+
+            int nearest = -1;
+            for (int v = 0; v < n; v++) {
+                if (inTree[v])
+                    continue;
+
+                double distance = graph.getDistance(current, v);
+                if (distance < keys[v]) {
+                    keys[v] = distance;
+                    parents[v] = current;
+                }
+                if (nearest < 0 || keys[v] < keys[nearest])
+                    nearest = v;
+            }
+
+            if (nearest < 0)
+                break;
+            if (keys[nearest] == Double.POSITIVE_INFINITY)
+                throw new IllegalArgumentException("Graph is not connected, there is no TSP path.");
+
+            current = nearest;
+        }
+
+        return mst;
+    }
+
+    /**
+     * Implementation of Kraskal's Algorithm for obtaing Minimum Spanning Tree.
+     * Cycles are detected with disjoint-set forest (union by size, path halving).
+     *
+     * @param graph graph on which we are looking for a MST
+     * @return Edges of minimum spanning tree as pairs of vertex indexes.
+     * @throws IllegalArgumentException when graph is not connected
+     */
+    public static int[] kruskal(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+
+        EdgeIndex edges = EdgeIndex.of(graph);
+        int m = edges.size();
+
+        int[] parents = new int[n];
+        int[] sizes = new int[n];
+        for (int v = 0; v < n; v++) {
+            parents[v] = v;
+            sizes[v] = 1;
+        }
+
+        int[] mst = new int[2 * Math.max(n - 1, 0)];
+        int size = 0;
+
+        for (int k = 0; k < m && size < mst.length; k++) {
+            int root1 = findRoot(parents, edges.getV1(k));
+            int root2 = findRoot(parents, edges.getV2(k));
+
+            if (root1 == root2)
+                continue;
+
+            if (sizes[root1] < sizes[root2]) {
+                int swap = root1;
+                root1 = root2;
+                root2 = swap;
+            }
+            parents[root2] = root1;
+            sizes[root1] += sizes[root2];
+
+            mst[size++] = edges.getV1(k);
+            mst[size++] = edges.getV2(k);
+        }
+
+        if (size < mst.length)
+            throw new IllegalArgumentException("Graph is not connected, there is no TSP path.");
+
+        return mst;
+    }
+
+    private static int findRoot(int[] parents, int v) {
+        while (parents[v] != v) {
+            parents[v] = parents[parents[v]];
+            v = parents[v];
+        }
+
+        return v;
+    }
+}
@@ -0,0 +1,542 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact TSP solver - branch and bound pruned by Held-Karp 1-tree lower bounds.
+ * <p>
+ * 1-tree is a spanning tree of vertexes <code>1 .. n-1</code> plus two cheapest edges of vertex <code>0</code>;
+ * every tour is a 1-tree, so its weight bounds the optimum from below. The bound is tightened by subgradient
+ * optimisation of vertex penalties <code>pi</code> (edge <code>(i, j)</code> costs <code>c + pi_i + pi_j</code>,
+ * bound is <code>w(1-tree) - 2 * sum(pi)</code>); a 1-tree with all degrees equal to 2 is an optimal tour of its
+ * subproblem.
+ * <p>
+ * Subproblems fix some edges as included or excluded. Branching follows Volgenant and Jonker: for vertex
+ * <code>v</code> of 1-tree degree over 2 and its free tree edges <code>e1, e2</code> children are
+ * <code>{e1 excluded}</code>, <code>{e1 included, e2 excluded}</code> and <code>{e1, e2 included}</code>.
+ * Vertexes with two included edges lose all other ones, and edges closing a subtour of included edges are excluded.
+ * <p>
+ * Upper bound starts at the Christofides tour improved by <code>LocalSearchImprover</code> and is shared by all
+ * subproblems, which run as tasks on a <code>ForkJoinPool</code> (children inherit penalties of their parent).
+ * Search may be limited by the number of subproblems or by <code>SolveOptions</code>; the result then reports
+ * explored subproblems per second and the lower bound left open.
+ */
+public class TSPBranchAndBoundSolver<T extends Number> implements TravellingSalesmanProblemSolver<T> {
+
+    /**
+     * Relative tolerance of pruning - subproblems which cannot improve the upper bound by more are skipped.
+     */
+    public static final double TOLERANCE = 1e-9;
+
+    private static final byte FREE = 0;
+    private static final byte INCLUDED = 1;
+    private static final byte EXCLUDED = -1;
+
+    private final long nodeLimit;
+    private final ForkJoinPool pool;
+
+    public TSPBranchAndBoundSolver() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param nodeLimit largest number of explored subproblems, the best tour found so far is returned afterwards
+     */
+    public TSPBranchAndBoundSolver(long nodeLimit) {
+        this(nodeLimit, ForkJoinPool.commonPool());
+    }
+
+    public TSPBranchAndBoundSolver(long nodeLimit, ForkJoinPool pool) {
+        if (nodeLimit < 1)
+            throw new IllegalArgumentException("Node limit has to be positive, got " + nodeLimit + ".");
+
+        this.nodeLimit = nodeLimit;
+        this.pool = pool;
+    }
+
+    /**
+     * Deadline and cancellation stop the search like the node limit does - lower bound of the result then shows
+     * the remaining gap. Every new upper bound is reported.
+     */
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options) {
+        int n = graph.getNumberVertexes();
+        if (n <= 1)
+            throw new IllegalArgumentException("Cannot calculate TSP path for single node. I am not dumb.");
+
+        List<SolveResult.Stage> stages = new ArrayList<>(2);
+        long start = System.nanoTime();
+        Search search = new Search(graph, options);
+
+        if (n <= 3) {
+            int[] tour = new int[n];
+            for (int i = 0; i < n; i++)
+                tour[i] = i;
+            search.offer(tour);
+            search.nodes.increment();
+        } else {
+            try {
+                int[] tour = new TSPOneHalfEstimator<T>().solve(graph, options.silent()).getTour();
+                search.offer(new LocalSearchImprover().improve(graph, tour, options.silent()));
+            } catch (IllegalArgumentException | IllegalStateException incomplete) {
+                // no starting tour on incomplete graph, search starts from infinite upper bound
+            }
+            stages.add(SolveResult.Stage.since("starting tour", start, 0));
+
+            start = System.nanoTime();
+            pool.invoke(search.new Subproblem(new byte[n * n], new double[n], Double.NEGATIVE_INFINITY, true));
+        }
+        stages.add(SolveResult.Stage.since("branch and bound", start, search.nodes.sum()));
+
+        int[] tour = search.bestTour;
+        if (tour == null)
+            throw new IllegalArgumentException("Graph has no Hamiltonian cycle, there is no TSP path.");
+
+        // closed search proves optimality, the cost is then compared with itself to get zero gap
+        double open = search.openBound.get();
+        double lower = open < search.upperBound() ? open : Tours.length(graph, tour);
+
+        return new SolveResult<>(graph, tour, lower, stages);
+    }
+
+    /**
+     * State shared by all subproblems of one search.
+     */
+    private final class Search {
+
+        private static final int ROOT_ITERATIONS_PER_VERTEX = 10;
+        private static final int CHILD_ITERATIONS = 50;
+
+        private final DistanceGraph graph;
+        private final SolveOptions options;
+        private final int n;
+        private final double[] costs;
+        private final AtomicLong upperBits = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        private final DoubleAccumulator openBound = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final LongAdder nodes = new LongAdder();
+        private final boolean integral;
+        private volatile int[] bestTour;
+
+        Search(DistanceGraph graph, SolveOptions options) {
+            this.graph = graph;
+            this.options = options;
+            n = graph.getNumberVertexes();
+            costs = new double[n * n];
+
+            boolean integral = true;
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    costs[i * n + j] = i == j ? Double.POSITIVE_INFINITY : graph.getDistance(i, j);
+                    integral &= i == j || Double.isInfinite(costs[i * n + j]) || costs[i * n + j] == Math.rint(costs[i * n + j]);
+                }
+            this.integral = integral;
+        }
+
+        double upperBound() {
+            return Double.longBitsToDouble(upperBits.get());
+        }
+
+        boolean prunes(double bound) {
+            double upper = upperBound();
+            if (integral)
+                return bound > upper - 1 + TOLERANCE * Math.abs(upper); // tours longer by at least 1 are needed
+            return bound >= upper - TOLERANCE * Math.abs(upper);
+        }
+
+        synchronized void offer(int[] tour) {
+            double length = 0.0;
+            for (int i = 0; i < tour.length; i++)
+                length += costs[tour[i] * n + tour[(i + 1) % tour.length]];
+
+            if (length < upperBound()) {
+                bestTour = tour.clone();
+                upperBits.set(Double.doubleToLongBits(length));
+
+                if (options.isReporting())
+                    options.improved(tour, Tours.length(graph, tour));
+            }
+        }
+
+        /**
+         * Minimum 1-tree of penalised costs.
+         *
+         * @param tree    receives 1-tree edges as pairs, <code>2n</code> values
+         * @param degrees receives degrees of vertexes in 1-tree
+         * @return Lower bound <code>w(1-tree) - 2 * sum(pi)</code>, <code>+inf</code> if there is no 1-tree.
+         */
+        double oneTree(byte[] state, double[] pi, int[] tree, int[] degrees) {
+            double[] keys = new double[n];
+            int[] parents = new int[n];
+            boolean[] done = new boolean[n];
+            Arrays.fill(keys, Double.POSITIVE_INFINITY);
+            Arrays.fill(degrees, 0);
+
+            double weight = 0.0;
+            int edges = 0;
+            int current = 1;
+            done[1] = true;
+
+            for (int added = 1; added < n - 1; added++) {
+                int next = -1;
+                double nextKey = Double.POSITIVE_INFINITY;
+
+                for (int v = 2; v < n; v++) {
+                    if (done[v])
+                        continue;
+
+                    byte s = state[current * n + v];
+                    double key = s == INCLUDED ? Double.NEGATIVE_INFINITY
+                            : s == EXCLUDED ? Double.POSITIVE_INFINITY
+                            : costs[current * n + v] + pi[current] + pi[v];
+                    if (key < keys[v]) {
+                        keys[v] = key;
+                        parents[v] = current;
+                    }
+                    if (next < 0 || keys[v] < nextKey) {
+                        next = v;
+                        nextKey = keys[v];
+                    }
+                }
+
+                if (nextKey == Double.POSITIVE_INFINITY)
+                    return Double.POSITIVE_INFINITY;
+
+                done[next] = true;
+                weight += costs[parents[next] * n + next] + pi[parents[next]] + pi[next];
+                tree[edges++] = parents[next];
+                tree[edges++] = next;
+                degrees[parents[next]]++;
+                degrees[next]++;
+                current = next;
+            }
+
+            for (int k = 0; k < 2; k++) {
+                int best = -1;
+                double bestCost = Double.POSITIVE_INFINITY;
+
+                for (int v = 1; v < n; v++) {
+                    byte s = state[v];
+                    if (s == EXCLUDED || (k == 1 && v == tree[2 * n - 3]))
+                        continue;
+
+                    double cost = s == INCLUDED ? Double.NEGATIVE_INFINITY : costs[v] + pi[0] + pi[v];
+                    if (cost < bestCost) {
+                        best = v;
+                        bestCost = cost;
+                    }
+                }
+
+                if (best < 0 || costs[best] == Double.POSITIVE_INFINITY)
+                    return Double.POSITIVE_INFINITY;
+
+                weight += costs[best] + pi[0] + pi[best];
+                tree[edges++] = 0;
+                tree[edges++] = best;
+                degrees[0]++;
+                degrees[best]++;
+            }
+
+            double penalties = 0.0;
+            for (double p : pi)
+                penalties += p;
+
+            return weight - 2 * penalties;
+        }
+
+        /**
+         * Excludes free edges whose inclusion would raise the bound above the upper one. Forcing edge
+         * <code>(i, j)</code> into 1-tree replaces the heaviest free edge on tree path from <code>i</code> to
+         * <code>j</code> (or the heavier edge of vertex <code>0</code>), so the new bound is known without computing
+         * the tree again.
+         */
+        void eliminate(byte[] state, double[] pi, int[] tree, double bound) {
+            int[] neighbours = new int[2 * n];
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < 2 * (n - 2); e++)
+                offsets[tree[e] + 1]++;
+            for (int v = 0; v < n; v++)
+                offsets[v + 1] += offsets[v];
+            int[] fill = offsets.clone();
+            for (int e = 0; e < 2 * (n - 2); e += 2) {
+                neighbours[fill[tree[e]]++] = tree[e + 1];
+                neighbours[fill[tree[e + 1]]++] = tree[e];
+            }
+
+            double[] heaviest = new double[n];
+            int[] stack = new int[n];
+            int[] parents = new int[n];
+
+            for (int source = 1; source < n; source++) {
+                int size = 0;
+                stack[size++] = source;
+                parents[source] = source;
+                heaviest[source] = Double.NEGATIVE_INFINITY;
+
+                while (size > 0) {
+                    int u = stack[--size];
+
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        int v = neighbours[k];
+                        if (v == parents[u])
+                            continue;
+
+                        double cost = state[u * n + v] == FREE ? costs[u * n + v] + pi[u] + pi[v] : Double.NEGATIVE_INFINITY;
+                        parents[v] = u;
+                        heaviest[v] = Math.max(heaviest[u], cost);
+                        stack[size++] = v;
+                    }
+                }
+
+                for (int v = source + 1; v < n; v++)
+                    if (state[source * n + v] == FREE && parents[v] != source && parents[source] != v
+                            && prunes(bound + costs[source * n + v] + pi[source] + pi[v] - heaviest[v]))
+                        state[source * n + v] = state[v * n + source] = EXCLUDED;
+            }
+
+            double second = Double.NEGATIVE_INFINITY;
+            for (int e = 2 * n - 3; e < 2 * n; e += 2)
+                if (state[tree[e]] == FREE)
+                    second = Math.max(second, costs[tree[e]] + pi[0] + pi[tree[e]]);
+
+            for (int v = 1; v < n; v++)
+                if (state[v] == FREE && v != tree[2 * n - 3] && v != tree[2 * n - 1]
+                        && prunes(bound + costs[v] + pi[0] + pi[v] - second))
+                    state[v] = state[v * n] = EXCLUDED;
+        }
+
+        /**
+         * Builds tour from 1-tree in which every vertex has degree 2.
+         */
+        int[] tourOf(int[] tree) {
+            int[] neighbours = new int[2 * n];
+            int[] count = new int[n];
+            for (int e = 0; e < 2 * n; e += 2) {
+                neighbours[2 * tree[e] + count[tree[e]]++] = tree[e + 1];
+                neighbours[2 * tree[e + 1] + count[tree[e + 1]]++] = tree[e];
+            }
+
+            int[] tour = new int[n];
+            for (int i = 1, previous = 0, current = neighbours[0]; i < n; i++) {
+                tour[i] = current;
+                int next = neighbours[2 * current] == previous ? neighbours[2 * current + 1] : neighbours[2 * current];
+                previous = current;
+                current = next;
+            }
+
+            return tour;
+        }
+
+        /**
+         * Includes edge and propagates consequences: vertexes with two included edges lose all other free ones,
+         * edges closing subtours are excluded.
+         *
+         * @return <code>false</code> if subproblem became infeasible.
+         */
+        boolean include(byte[] state, int a, int b) {
+            if (state[a * n + b] == EXCLUDED)
+                return false;
+
+            state[a * n + b] = state[b * n + a] = INCLUDED;
+
+            int[] neighbours = new int[2 * n];
+            int[] count = new int[n];
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++)
+                    if (state[i * n + j] == INCLUDED) {
+                        if (count[i] == 2 || count[j] == 2)
+                            return false;
+                        neighbours[2 * i + count[i]++] = j;
+                        neighbours[2 * j + count[j]++] = i;
+                    }
+
+            for (int i = 0; i < n; i++)
+                if (count[i] == 2)
+                    for (int j = 0; j < n; j++)
+                        if (state[i * n + j] == FREE)
+                            state[i * n + j] = state[j * n + i] = EXCLUDED;
+
+            boolean[] visited = new boolean[n];
+            for (int start = 0; start < n; start++) {
+                if (visited[start] || count[start] != 1)
+                    continue;
+
+                int length = 1;
+                int previous = start;
+                int current = neighbours[2 * start];
+                visited[start] = true;
+                while (count[current] == 2) {
+                    visited[current] = true;
+                    int next = neighbours[2 * current] == previous ? neighbours[2 * current + 1] : neighbours[2 * current];
+                    previous = current;
+                    current = next;
+                    length++;
+                }
+                visited[current] = true;
+                length++;
+
+                if (length < n && state[start * n + current] == FREE)
+                    state[start * n + current] = state[current * n + start] = EXCLUDED;
+            }
+
+            // vertexes left are on cycles of included edges, which is fine only for the whole tour
+            for (int i = 0; i < n; i++)
+                if (!visited[i] && count[i] == 2) {
+                    int length = 0;
+                    for (int j = 0; j < n; j++)
+                        if (!visited[j] && count[j] == 2)
+                            length++;
+                    return length == n;
+                }
+
+            return true;
+        }
+
+        /**
+         * Single subproblem - bounded by subgradient optimisation, then pruned, closed by tour or branched.
+         */
+        private final class Subproblem extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final byte[] state;
+            private final double[] pi;
+            private final double parentBound;
+            private final boolean root;
+
+            Subproblem(byte[] state, double[] pi, double parentBound, boolean root) {
+                this.state = state;
+                this.pi = pi;
+                this.parentBound = parentBound;
+                this.root = root;
+            }
+
+            @Override
+            protected void compute() {
+                if (prunes(parentBound))
+                    return;
+                if (nodes.sum() >= nodeLimit || options.isStopped()) {
+                    openBound.accumulate(parentBound);
+                    return;
+                }
+                nodes.increment();
+
+                int[] tree = new int[2 * n];
+                int[] degrees = new int[n];
+                double bound = bound(tree, degrees);
+
+                if (bound == Double.POSITIVE_INFINITY || prunes(bound))
+                    return;
+
+                int v = -1;
+                for (int i = 0; i < n; i++)
+                    if (degrees[i] > 2 && (v < 0 || degrees[i] > degrees[v]))
+                        v = i;
+
+                if (v < 0) {
+                    offer(tourOf(tree));
+                    return;
+                }
+
+                eliminate(state, pi, tree, bound);
+                invokeAll(branch(v, tree, bound));
+            }
+
+            /**
+             * Subgradient optimisation of <code>pi</code>; leaves 1-tree of the best bound in arrays.
+             */
+            private double bound(int[] tree, int[] degrees) {
+                int iterations = root ? ROOT_ITERATIONS_PER_VERTEX * n : CHILD_ITERATIONS;
+                int period = Math.max(iterations / 10, 5);
+                double lambda = root ? 2.0 : 0.5;
+
+                double best = Double.NEGATIVE_INFINITY;
+                double[] bestPi = pi.clone();
+                int sinceImprovement = 0;
+
+                for (int iteration = 0; iteration < iterations; iteration++) {
+                    double bound = oneTree(state, pi, tree, degrees);
+                    if (bound == Double.POSITIVE_INFINITY)
+                        return bound;
+
+                    if (bound > best) {
+                        best = bound;
+                        System.arraycopy(pi, 0, bestPi, 0, n);
+                        sinceImprovement = 0;
+                    } else if (++sinceImprovement >= period) {
+                        lambda /= 2;
+                        sinceImprovement = 0;
+                    }
+
+                    if (prunes(best))
+                        return best;
+
+                    long norm = 0;
+                    for (int i = 0; i < n; i++)
+                        norm += (degrees[i] - 2) * (degrees[i] - 2);
+                    if (norm == 0)
+                        return bound; // 1-tree is a tour
+
+                    double upper = upperBound();
+                    double target = upper < Double.POSITIVE_INFINITY ? upper : bound + Math.abs(bound) * 0.01 + 1.0;
+                    double step = lambda * (target - bound) / norm;
+                    for (int i = 0; i < n; i++)
+                        pi[i] += step * (degrees[i] - 2);
+                }
+
+                System.arraycopy(bestPi, 0, pi, 0, n);
+                return oneTree(state, pi, tree, degrees);
+            }
+
+            private List<Subproblem> branch(int v, int[] tree, double bound) {
+                int e1 = -1;
+                int e2 = -1;
+                int included = 0;
+
+                for (int u = 0; u < n; u++)
+                    if (state[v * n + u] == INCLUDED)
+                        included++;
+
+                for (int e = 0; e < 2 * n; e += 2) {
+                    int u = tree[e] == v ? tree[e + 1] : tree[e + 1] == v ? tree[e] : -1;
+                    if (u < 0 || state[v * n + u] != FREE)
+                        continue;
+
+                    if (e1 < 0)
+                        e1 = u;
+                    else if (e2 < 0)
+                        e2 = u;
+                }
+
+                List<Subproblem> children = new ArrayList<>(3);
+
+                byte[] excluded = state.clone();
+                excluded[v * n + e1] = excluded[e1 * n + v] = EXCLUDED;
+                children.add(new Subproblem(excluded, pi.clone(), bound, false));
+
+                byte[] first = state.clone();
+                if (include(first, v, e1)) {
+                    if (included == 0) {
+                        byte[] both = first.clone();
+                        if (include(both, v, e2))
+                            children.add(new Subproblem(both, pi.clone(), bound, false));
+
+                        if (first[v * n + e2] == FREE)
+                            first[v * n + e2] = first[e2 * n + v] = EXCLUDED;
+                    }
+                    children.add(new Subproblem(first, pi.clone(), bound, false));
+                }
+
+                return children;
+            }
+        }
+    }
+}
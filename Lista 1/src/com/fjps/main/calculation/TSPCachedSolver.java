@@ -0,0 +1,54 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.GraphFingerprint;
+
+import java.util.Collections;
+
+/**
+ * Decorator answering repeated instances from <code>SolveCache</code>. Graph is fingerprinted first; if the same
+ * solver already solved a graph of the same fingerprint, its tour and lower bound are returned with a single
+ * <code>"cache"</code> stage, otherwise the solve runs and its result is cached.
+ * <p>
+ * Results of solves stopped by deadline or cancellation are not cached - they are not what the solver finds
+ * given enough time. Many decorators (of different solvers) may share one cache.
+ */
+public class TSPCachedSolver<T extends Number> implements TravellingSalesmanProblemSolver<T> {
+
+    private final TravellingSalesmanProblemSolver<T> solver;
+    private final SolveCache cache;
+
+    public TSPCachedSolver(TravellingSalesmanProblemSolver<T> solver) {
+        this(solver, new SolveCache());
+    }
+
+    public TSPCachedSolver(TravellingSalesmanProblemSolver<T> solver, SolveCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options) {
+        long start = System.nanoTime();
+        GraphFingerprint fingerprint = GraphFingerprint.of(graph);
+
+        SolveCache.CachedTour cached = cache.tour(fingerprint, solver);
+        if (cached != null) {
+            SolveResult<T> result = new SolveResult<>(graph, cached.getTour(), cached.getLowerBound(),
+                    Collections.singletonList(SolveResult.Stage.since("cache", start, 0)));
+            options.improved(cached.getTour(), result.getCost());
+
+            return result;
+        }
+
+        SolveResult<T> result = solver.solve(graph, options);
+        if (!options.isStopped())
+            cache.putTour(fingerprint, solver, result);
+
+        return result;
+    }
+
+    public SolveCache getCache() {
+        return cache;
+    }
+}
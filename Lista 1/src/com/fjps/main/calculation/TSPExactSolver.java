@@ -1,11 +1,9 @@
 package com.fjps.main.calculation;
 
-import com.fjps.main.graph.Edge;
-import com.fjps.main.graph.Graph;
-import com.fjps.main.graph.Vertex;
-import com.fjps.main.graph.exceptions.InvalidVertexIDException;
+import com.fjps.main.graph.DistanceGraph;
 
-import java.util.*;
+import java.util.Collections;
+import java.util.Random;
 
 
 /**
@@ -14,149 +12,236 @@ import java.util.*;
 
 public class TSPExactSolver<T extends Number> implements TravellingSalesmanProblemSolver<T>
 {
-    private Graph<T> graph;
-    private int[] path;
-    private Random r;
+    /**
+     * Number of annealing moves. Every move costs <code>O(1)</code>, so this is well below a second.
+     */
+    private static final int ITERATIONS = 1000000;
 
-    private int[] getStartingSolution()
-    {
-        int[] newList = new int[path.length];
-        for (int i = 0; i < newList.length; ++i)
-            newList[i] = i;
-        Random r = new Random(System.currentTimeMillis());
-        for (int i = 0; i < newList.length; ++i)
-        {
-            int i1 = r.nextInt(newList.length);
-            int i2 = r.nextInt(newList.length);
-            int temp = newList[i1];
-            newList[i1] = newList[i2];
-            newList[i2] = temp;
-        }
-        return newList;
-    }
+    /**
+     * Final temperature relative to the starting one; cooling is geometric and spread over all iterations.
+     */
+    private static final double COOLING_RANGE = 1e-4;
 
-    private Double P(Double x0, Double x, Double temp)
+    /**
+     * Deadline, cancellation and improvements are checked once per this many iterations (minus one).
+     */
+    private static final int CHECK_MASK = (1 << 10) - 1;
+
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options)
     {
-        return Math.min(1.0, Math.exp((-1)*(x - x0) / temp));
+        long start = System.nanoTime();
+        Annealing annealing = new Annealing(graph, new Random());
+        annealing.solve(ITERATIONS, options);
+        return new SolveResult<>(graph, annealing.path, Double.NEGATIVE_INFINITY,
+                Collections.singletonList(SolveResult.Stage.since("annealing", start, annealing.performed)));
     }
 
-    private int[] swapIndexes(int[] master, int x, int y)
+    /**
+     * State of a single annealing run.
+     */
+    private static final class Annealing
     {
-        int i1 = x;
-        int i2 = y;
-        if(i2 < i1)
+        private final DistanceGraph distances;
+        private final Random r;
+        private int[] path;
+        private int performed;
+
+        Annealing(DistanceGraph distances, Random r)
         {
-            int temp = i1;
-            i2 = i1;
-            i1 = temp;
+            this.distances = distances;
+            this.r = r;
+            this.path = new int[distances.getNumberVertexes()];
         }
-        List<Integer> newList = new ArrayList<>();
-        for (int l = 0; l < i1; ++l)
-            newList.add(master[l]);
-        for (int l = i2; l >= i1; --l)
-            newList.add(master[l]);
-        for (int l = i2+1; l < master.length; ++l)
-            newList.add(master[l]);
-        int[] listToReturn = new int[newList.size()];
-        for (int i = 0; i < listToReturn.length; ++i)
-            listToReturn[i] = newList.get(i);
-        return listToReturn;
-    }
 
-    private int[] getNeighbor(int[] master)
-    {
-        int i1 = r.nextInt(master.length);
-        int i2 = r.nextInt(master.length);
-        while ( i1 == i2)
+        private int[] getStartingSolution()
         {
-            i2 = r.nextInt(master.length);
+            int[] newList = new int[path.length];
+            for (int i = 0; i < newList.length; ++i)
+                newList[i] = i;
+            for (int i = newList.length - 1; i > 0; --i)
+            {
+                int i1 = r.nextInt(i + 1);
+                int temp = newList[i1];
+                newList[i1] = newList[i];
+                newList[i] = temp;
+            }
+            return newList;
         }
-        return swapIndexes(master, i1, i2);
-    }
 
-    private int getIdFromString(Vertex<T> v)
-    {
-        return Integer.parseInt(v.getID().substring(1));
-    }
+        /**
+         * Metropolis criterion for a move changing tour length by <code>delta</code>.
+         */
+        private boolean accept(double delta, double temp)
+        {
+            return delta <= 0.0 || r.nextDouble() < Math.exp(-delta / temp);
+        }
 
-    private Double getLength(int[] array)
-    {
-        Double sum = 0.0;
-        List<Vertex<T>> verticles = graph.getAllVertexes();
-        List<Edge<T>> edges = new LinkedList<>(graph.getAllEdges());
-        for (int i = 0; i < array.length-1; ++i)
+        /**
+         * Length change of reversing <code>tour[i..j]</code>, <code>i &lt; j</code>: only edges entering and leaving
+         * the segment change, so it is computed from four distances.
+         */
+        private double reversalDelta(int[] tour, int i, int j)
         {
-            for (Edge<T> e : edges)
+            int n = tour.length;
+            int a = tour[i == 0 ? n - 1 : i - 1];
+            int b = tour[i];
+            int c = tour[j];
+            int d = tour[j == n - 1 ? 0 : j + 1];
+
+            return distances.getDistance(a, c) + distances.getDistance(b, d)
+                    - distances.getDistance(a, b) - distances.getDistance(c, d);
+        }
+
+        /**
+         * Reverses <code>tour[i..j]</code> in place. Reversing the complementary part of the cycle gives the same tour,
+         * so the shorter of the two is reversed.
+         */
+        private static void reverse(int[] tour, int i, int j)
+        {
+            int n = tour.length;
+            int length = j - i + 1;
+            if (2 * length > n)
             {
-                int v1 = getIdFromString(e.getV1());
-                int v2 = getIdFromString(e.getV2());
-                if(v1 == array[i] && v2 == array[i+1])
-                    sum += (Double) e.getWeight();
-                if(v1 == array[i+1] && v2 == array[i])
-                    sum += (Double)e.getWeight();
+                length = n - length;
+                i = j + 1;
+            }
+            for (int l = i, h = i + length - 1; l < h; ++l, --h)
+            {
+                int temp = tour[l % n];
+                tour[l % n] = tour[h % n];
+                tour[h % n] = temp;
             }
         }
-        for (Edge<T> e : edges)
+
+        private double getLength(int[] array)
         {
-            int v1 = getIdFromString(e.getV1());
-            int v2 = getIdFromString(e.getV2());
-            if(v1 == array[0] && v2 == array[array.length-1])
-                sum += (Double)e.getWeight();
-            if(v1 == array[array.length-1] && v2 == array[0])
-                sum += (Double)e.getWeight();
+            double sum = distances.getDistance(array[array.length-1], array[0]);
+            for (int i = 0; i < array.length-1; ++i)
+                sum += distances.getDistance(array[i], array[i+1]);
+            return sum;
         }
-        return sum;
-    }
 
-    private void solve(Double startTemp, Double delta, int iterations)
-    {
-        int[] x0 = getStartingSolution();
-        int[] xopt = x0.clone();
-        int[] x = x0.clone();
-        double temp = startTemp;
-        int iter = 0;
+        /**
+         * Mean length change of random moves from the starting tour - worsening moves of typical size are then
+         * accepted with probability <code>1/e</code> at the beginning.
+         */
+        private double startingTemperature(int[] tour)
+        {
+            int n = tour.length;
+            double sum = 0.0;
+            for (int k = 0; k < 100; ++k)
+            {
+                int i1 = r.nextInt(n - 1);
+                int i2 = i1 + 1 + r.nextInt(n - 1 - i1);
+                sum += Math.abs(reversalDelta(tour, i1, i2));
+            }
+            return Math.max(sum / 100, Double.MIN_NORMAL);
+        }
 
-        while(iter < iterations)
+        /**
+         * Simulated annealing over segment reversal (2-opt) moves. Every move is evaluated in <code>O(1)</code> and
+         * current length is tracked incrementally. Best tour is copied lazily - only when the walk is about to leave it.
+         * <p>
+         * With a deadline, temperature follows whichever is further - iterations or time - so the walk is cold when
+         * the deadline comes.
+         *
+         * @return Length of the last tour passed to the listener.
+         */
+        private double solve(int iterations, SolveOptions options)
         {
-            x = getNeighbor(x0);
-            Double x0Len = getLength(x0);
-            Double xLen = getLength(x);
-            if((r.nextDouble() % 1.0) < P(x0Len, xLen, temp))
+            int n = path.length;
+            int[] x = getStartingSolution();
+            path = x.clone();
+            double reported = report(x, Double.POSITIVE_INFINITY, options);
+            if (n < 4)
+                return reported;
+
+            double start = startingTemperature(x);
+            double temp = start;
+            double delta = Math.pow(COOLING_RANGE, 1.0 / iterations);
+            long begin = System.nanoTime();
+            long budget = options.hasDeadline() ? Math.max(options.getDeadline() - begin, 1) : Long.MAX_VALUE;
+            double xLen = getLength(x);
+            double optLen = xLen;
+            double checkedLen = optLen;
+            boolean atOpt = true;
+
+            int iter = 0;
+            for (; iter < iterations; ++iter, temp *= delta)
             {
-                x0 = x.clone();
-                if(getLength(x0) < getLength(xopt))
+                if ((iter & CHECK_MASK) == CHECK_MASK)
+                {
+                    if (options.isStopped())
+                        break;
+                    if (options.hasDeadline())
+                    {
+                        double progress = Math.max((double) iter / iterations, (double) (System.nanoTime() - begin) / budget);
+                        temp = Math.min(temp, start * Math.pow(COOLING_RANGE, progress));
+                    }
+                    if (optLen < checkedLen)
+                    {
+                        reported = report(atOpt ? x : path, reported, options);
+                        checkedLen = optLen;
+                    }
+                }
+
+                int i1 = r.nextInt(n);
+                int i2 = r.nextInt(n - 1);
+                if (i2 >= i1)
+                    ++i2;
+                if (i1 > i2)
+                {
+                    int t = i1;
+                    i1 = i2;
+                    i2 = t;
+                }
+                if (i1 == 0 && i2 == n - 1)
+                    continue;
+
+                double change = reversalDelta(x, i1, i2);
+                if (!accept(change, temp))
+                    continue;
+
+                if (atOpt && change > 0.0)
+                {
+                    System.arraycopy(x, 0, path, 0, n);
+                    atOpt = false;
+                }
+
+                reverse(x, i1, i2);
+                xLen += change;
+
+                if (xLen < optLen)
                 {
-                    xopt = x0.clone();
+                    optLen = xLen;
+                    atOpt = true;
                 }
             }
-            temp *= delta;
-            ++iter;
+
+            if (atOpt)
+                System.arraycopy(x, 0, path, 0, n);
+
+            performed = iter;
+            return report(path, reported, options);
         }
-        path = xopt.clone();
-    }
 
-    @Override
-    public T calculateOptimum(Graph<T> graph)
-    {
-        r = new Random(System.currentTimeMillis());
-        this.graph = graph;
-        path = new int[graph.getNumberVertexes()];
-        solve(10000.0, 0.999, 100000);
-        return  (T)getLength(path);
-    }
+        /**
+         * Passes tour to the listener if it is shorter than <code>reported</code>.
+         *
+         * @return Length of the last reported tour.
+         */
+        private double report(int[] tour, double reported, SolveOptions options)
+        {
+            if (!options.isReporting())
+                return reported;
 
-    @Override
-    public String getPathAsString()
-    {
-        StringBuilder builder = new StringBuilder("path: ");
-        for (int i = 0; i < path.length; ++i)
-            builder.append("V").append(path[i]).append(" ");
-        return  builder.toString();
-    }
+            double length = Tours.length(distances, tour);
+            if (length >= reported)
+                return reported;
 
-    @Override
-    public List<Edge<T>> getLastOptimalPath()
-    {
-        return  null;
+            options.improved(tour, length);
+            return length;
+        }
     }
-}
\ No newline at end of file
+}
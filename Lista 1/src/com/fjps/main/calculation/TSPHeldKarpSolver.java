@@ -0,0 +1,279 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Exact TSP solver - Held-Karp dynamic programming over subsets, <code>O(2^n * n^2)</code> time.
+ * <p>
+ * The last vertex is the start of every tour. For each subset <code>S</code> of remaining <code>m = n-1</code>
+ * vertexes and each <code>j</code> in <code>S</code>, the table keeps the length of the shortest path from start
+ * through all of <code>S</code> ending in <code>j</code>. Table is one flat primitive array indexed by
+ * <code>S * m + j</code>.
+ * <p>
+ * Subsets are processed layer by layer (by their size). A layer only reads the previous one, so it is split into
+ * chunks of consecutive subsets - first subset of a chunk is unranked directly, the following ones come from
+ * Gosper's hack - and chunks are computed in parallel. No predecessors are stored: the tour is reconstructed
+ * backwards by finding the argument of every minimum again.
+ * <p>
+ * Table of <code>double</code> takes <code>8 * 2^m * m</code> bytes. If it does not fit in the memory limit,
+ * <code>float</code> table of half the size is used instead (the tour is then optimal up to <code>float</code>
+ * rounding, its reported length is computed exactly). If neither fits, solver refuses to start.
+ */
+public class TSPHeldKarpSolver<T extends Number> implements TravellingSalesmanProblemSolver<T> {
+
+    /**
+     * Default memory limit - half of the heap available to JVM.
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = Runtime.getRuntime().maxMemory() / 2;
+
+    private static final int CHUNK = 1 << 12;
+
+    private final long memoryLimit;
+
+    public TSPHeldKarpSolver() {
+        this(DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * @param memoryLimit largest size of dynamic programming table, in bytes
+     */
+    public TSPHeldKarpSolver(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * @param n           number of vertexes
+     * @param bytesPerCell size of table cell, 8 for <code>double</code> and 4 for <code>float</code>
+     * @return Size of the table for graph of <code>n</code> vertexes, in bytes.
+     */
+    public static long requiredMemory(int n, int bytesPerCell) {
+        int m = Math.max(n - 1, 0);
+        return m > 56 ? Long.MAX_VALUE : ((long) bytesPerCell * m) << m;
+    }
+
+    /**
+     * Dynamic programming gives no tour before it ends - if it is stopped, nearest neighbour tour is returned.
+     * Completed solve has lower bound equal to the cost, unless <code>float</code> table was used.
+     */
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options) {
+        int n = graph.getNumberVertexes();
+        if (n <= 1)
+            throw new IllegalArgumentException("Cannot calculate TSP path for single node. I am not dumb.");
+
+        int m = n - 1;
+        boolean fitsArray = m < 31 && ((long) m << m) <= Integer.MAX_VALUE - 8;
+        Table table;
+        if (fitsArray && requiredMemory(n, 8) <= memoryLimit)
+            table = new DoubleTable(m << m);
+        else if (fitsArray && requiredMemory(n, 4) <= memoryLimit)
+            table = new FloatTable(m << m);
+        else
+            throw new IllegalArgumentException("Held-Karp table for " + n + " vertexes needs at least "
+                    + requiredMemory(n, 4) + " bytes, memory limit is " + memoryLimit + " bytes"
+                    + (fitsArray ? "." : " and Java array holds less than 2^31 cells."));
+
+        List<SolveResult.Stage> stages = new ArrayList<>(2);
+        long start = System.nanoTime();
+        long relaxed = 0;
+
+        double[] distances = new double[n * n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                distances[i * n + j] = graph.getDistance(i, j);
+
+        for (int j = 0; j < m; j++)
+            table.set((1 << j) * m + j, distances[m * n + j]);
+
+        long[][] binomials = binomials(m);
+        for (int size = 2; size <= m; size++) {
+            int layer = size;
+            long subsets = binomials[m][size];
+            int chunks = (int) ((subsets + CHUNK - 1) / CHUNK);
+
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                if (options.isStopped())
+                    return;
+
+                int subset = unrank((long) chunk * CHUNK, layer, binomials);
+                long count = Math.min(CHUNK, subsets - (long) chunk * CHUNK);
+
+                for (long c = 0; c < count; c++) {
+                    relax(table, distances, n, subset);
+                    subset = nextSubset(subset);
+                }
+            });
+
+            if (options.isStopped()) {
+                stages.add(SolveResult.Stage.since("dynamic programming", start, relaxed));
+
+                start = System.nanoTime();
+                int[] tour = Tours.nearestNeighbour(graph);
+                stages.add(SolveResult.Stage.since("nearest neighbour", start, 0));
+
+                SolveResult<T> result = new SolveResult<>(graph, tour, Double.NEGATIVE_INFINITY, stages);
+                options.improved(tour, result.getCost());
+                return result;
+            }
+            relaxed += subsets;
+        }
+        stages.add(SolveResult.Stage.since("dynamic programming", start, relaxed));
+        start = System.nanoTime();
+
+        int full = (1 << m) - 1;
+        int last = closest(table, distances, n, full, m);
+        double best = table.get(full * m + last) + distances[last * n + m];
+        if (best == Double.POSITIVE_INFINITY)
+            throw new IllegalArgumentException("Graph has no Hamiltonian cycle, there is no TSP path.");
+
+        int[] tour = new int[n];
+        tour[0] = m;
+        for (int subset = full, position = m; position > 0; position--) {
+            tour[position] = last;
+            int previous = subset ^ (1 << last);
+            if (previous != 0)
+                last = closest(table, distances, n, previous, last);
+            subset = previous;
+        }
+
+        stages.add(SolveResult.Stage.since("reconstruction", start, 0));
+
+        double length = Tours.length(graph, tour);
+        SolveResult<T> result = new SolveResult<>(graph, tour,
+                table instanceof DoubleTable ? length : Double.NEGATIVE_INFINITY, stages);
+        options.improved(tour, length);
+        return result;
+    }
+
+    /**
+     * Fills table cells of all paths over <code>subset</code>.
+     */
+    private static void relax(Table table, double[] distances, int n, int subset) {
+        int m = n - 1;
+
+        for (int rest = subset; rest != 0; rest &= rest - 1) {
+            int j = Integer.numberOfTrailingZeros(rest);
+            int previous = subset ^ (1 << j);
+            double best = Double.POSITIVE_INFINITY;
+
+            for (int candidates = previous; candidates != 0; candidates &= candidates - 1) {
+                int i = Integer.numberOfTrailingZeros(candidates);
+                double length = table.get(previous * m + i) + distances[i * n + j];
+                if (length < best)
+                    best = length;
+            }
+
+            table.set(subset * m + j, best);
+        }
+    }
+
+    /**
+     * @return Vertex <code>i</code> of <code>subset</code> minimising length of path over <code>subset</code>
+     * ending in <code>i</code> and extended to <code>target</code> - the same sum as in <code>relax()</code>.
+     */
+    private static int closest(Table table, double[] distances, int n, int subset, int target) {
+        int m = n - 1;
+        int closest = -1;
+        double best = Double.POSITIVE_INFINITY;
+
+        for (int candidates = subset; candidates != 0; candidates &= candidates - 1) {
+            int i = Integer.numberOfTrailingZeros(candidates);
+            double length = table.get(subset * m + i) + distances[i * n + target];
+            if (closest < 0 || length < best) {
+                closest = i;
+                best = length;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Gosper's hack - next integer with the same number of set bits.
+     */
+    private static int nextSubset(int subset) {
+        int lowest = subset & -subset;
+        int ripple = subset + lowest;
+
+        return ripple | (((subset ^ ripple) >>> 2) / lowest);
+    }
+
+    /**
+     * @return Subset of given size at position <code>rank</code> in increasing order of subsets of this size.
+     */
+    private static int unrank(long rank, int size, long[][] binomials) {
+        int subset = 0;
+
+        for (int k = size; k > 0; k--) {
+            int c = k - 1;
+            while (binomials[c + 1][k] <= rank)
+                c++;
+
+            subset |= 1 << c;
+            rank -= binomials[c][k];
+        }
+
+        return subset;
+    }
+
+    private static long[][] binomials(int m) {
+        long[][] binomials = new long[m + 2][m + 2];
+
+        for (int i = 0; i <= m + 1; i++) {
+            binomials[i][0] = 1;
+            for (int k = 1; k <= i; k++)
+                binomials[i][k] = binomials[i - 1][k - 1] + binomials[i - 1][k];
+        }
+
+        return binomials;
+    }
+
+    private interface Table {
+
+        double get(int index);
+
+        void set(int index, double value);
+    }
+
+    private static final class DoubleTable implements Table {
+
+        private final double[] cells;
+
+        DoubleTable(int size) {
+            cells = new double[size];
+        }
+
+        @Override
+        public double get(int index) {
+            return cells[index];
+        }
+
+        @Override
+        public void set(int index, double value) {
+            cells[index] = value;
+        }
+    }
+
+    private static final class FloatTable implements Table {
+
+        private final float[] cells;
+
+        FloatTable(int size) {
+            cells = new float[size];
+        }
+
+        @Override
+        public double get(int index) {
+            return cells[index];
+        }
+
+        @Override
+        public void set(int index, double value) {
+            cells[index] = (float) value;
+        }
+    }
+}
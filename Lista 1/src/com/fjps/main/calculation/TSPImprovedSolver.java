@@ -0,0 +1,36 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * Solver decorator - tour found by any solver is passed through a <code>TourImprover</code>. Decorators may be
+ * chained, e.g. <code>new TSPImprovedSolver&lt;&gt;(new TSPOneHalfEstimator&lt;&gt;(), new LocalSearchImprover())</code>.
+ */
+public class TSPImprovedSolver<T extends Number> implements TravellingSalesmanProblemSolver<T> {
+
+    private final TravellingSalesmanProblemSolver<T> solver;
+    private final TourImprover improver;
+
+    public TSPImprovedSolver(TravellingSalesmanProblemSolver<T> solver) {
+        this(solver, new LocalSearchImprover());
+    }
+
+    public TSPImprovedSolver(TravellingSalesmanProblemSolver<T> solver, TourImprover improver) {
+        this.solver = solver;
+        this.improver = improver;
+    }
+
+    /**
+     * Starting tour is found by <code>solve()</code> of the wrapped solver, improvement then gets the rest of the
+     * time.
+     */
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options) {
+        SolveResult<T> start = solver.solve(graph, options);
+
+        long begin = System.nanoTime();
+        int[] tour = improver.improve(graph, start.getTour(), options);
+
+        return start.improved(tour, SolveResult.Stage.since("improvement", begin, 0));
+    }
+}
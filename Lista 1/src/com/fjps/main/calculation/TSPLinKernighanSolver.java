@@ -0,0 +1,30 @@
+package com.fjps.main.calculation;
+
+/**
+ * Christofides tour improved by Lin-Kernighan search with double-bridge kicks, see
+ * <code>LinKernighanImprover</code>. Quality depends on the wall-clock budget.
+ */
+public class TSPLinKernighanSolver<T extends Number> extends TSPImprovedSolver<T> {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 1000;
+
+    public TSPLinKernighanSolver() {
+        this(DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param budgetMillis wall-clock time of improvement, after the starting tour is found
+     */
+    public TSPLinKernighanSolver(long budgetMillis) {
+        super(new TSPOneHalfEstimator<>(), new LinKernighanImprover(budgetMillis));
+    }
+
+    /**
+     * @param budgetMillis wall-clock time of improvement, after the starting tour is found
+     * @param seed         seed of kicks, for repeatable results
+     */
+    public TSPLinKernighanSolver(long budgetMillis, long seed) {
+        super(new TSPOneHalfEstimator<>(), new LinKernighanImprover(budgetMillis,
+                LocalSearchImprover.DEFAULT_NEIGHBOURS, seed));
+    }
+}
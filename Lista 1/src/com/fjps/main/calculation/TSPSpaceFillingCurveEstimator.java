@@ -0,0 +1,35 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.PointSetGraph;
+
+import java.util.Collections;
+
+/**
+ * Starting tour for big geometric instances - points are visited along a space-filling curve, see
+ * <code>Tours.spaceFillingCurve()</code>. It takes <code>O(n log n)</code> time and <code>O(n)</code> memory, so
+ * together with a <code>TourImprover</code> (whose neighbour lists of <code>PointSetGraph</code> are also found in
+ * <code>O(n log n)</code>) it solves instances of a million points, where Christofides' <code>O(n^2)</code> tree and
+ * matching are out of reach.
+ * <p>
+ * Graphs without coordinates get a nearest neighbour tour.
+ */
+public class TSPSpaceFillingCurveEstimator<T extends Number> implements TravellingSalesmanProblemSolver<T> {
+
+    /**
+     * Curve cannot be interrupted - only the result is reported.
+     */
+    @Override
+    public SolveResult<T> solve(DistanceGraph graph, SolveOptions options) {
+        long start = System.nanoTime();
+        int[] tour = graph instanceof PointSetGraph ? Tours.spaceFillingCurve((PointSetGraph) graph)
+                : Tours.nearestNeighbour(graph);
+
+        SolveResult<T> result = new SolveResult<>(graph, tour, Double.NEGATIVE_INFINITY,
+                Collections.singletonList(SolveResult.Stage.since(graph instanceof PointSetGraph ?
+                        "space-filling curve" : "nearest neighbour", start, 0)));
+        options.improved(tour, result.getCost());
+
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.fjps.main.calculation;
+
+/**
+ * Mutable tour over vertexes <code>0 .. n-1</code>, changed by 2-opt moves only - used by local search heuristics.
+ * <p>
+ * Orientation of the tour is not fixed: a move may reverse either of the two paths it reconnects, so callers
+ * should ask <code>next()</code> again after every <code>flip()</code>.
+ */
+public interface Tour {
+
+    int size();
+
+    int next(int v);
+
+    int previous(int v);
+
+    default int step(int v, boolean forward) {
+        return forward ? next(v) : previous(v);
+    }
+
+    /**
+     * @return <code>true</code> if going forward from <code>a</code> one reaches <code>b</code> before passing
+     * <code>c</code> (ends included).
+     */
+    boolean between(int a, int b, int c);
+
+    /**
+     * 2-opt move replacing <code>(a, b), (c, d)</code> with <code>(a, c), (b, d)</code>, where <code>b</code> and
+     * <code>d</code> are both successors or both predecessors of <code>a</code> and <code>c</code>.
+     * <code>flip(a, c, b, d)</code> undoes it.
+     */
+    void flip(int a, int b, int c, int d);
+
+    /**
+     * @return Vertexes in tour order.
+     */
+    int[] toArray();
+}
@@ -0,0 +1,29 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * Tour improvement stage, run on a tour found by any <code>TravellingSalesmanProblemSolver</code>.
+ */
+public interface TourImprover {
+
+    /**
+     * @param graph distances between vertexes
+     * @param tour  permutation of vertex indexes, left untouched
+     * @return New tour, not longer than <code>tour</code>.
+     */
+    default int[] improve(DistanceGraph graph, int[] tour) {
+        return improve(graph, tour, SolveOptions.unlimited());
+    }
+
+    /**
+     * Stops at the deadline or on cancellation of <code>options</code>, returning the best tour found so far.
+     * Tours shorter than <code>tour</code> are reported to the listener of <code>options</code>.
+     *
+     * @param graph   distances between vertexes
+     * @param tour    permutation of vertex indexes, left untouched
+     * @param options deadline, cancellation token and listener
+     * @return New tour, not longer than <code>tour</code>.
+     */
+    int[] improve(DistanceGraph graph, int[] tour, SolveOptions options);
+}
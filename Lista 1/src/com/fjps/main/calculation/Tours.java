@@ -0,0 +1,184 @@
+package com.fjps.main.calculation;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.Edge;
+import com.fjps.main.graph.Graph;
+import com.fjps.main.graph.PointSetGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Helpers for tours kept as permutations of vertex indexes.
+ */
+public final class Tours {
+
+    /**
+     * Tour size from which <code>TwoLevelListTour</code> beats <code>ArrayTour</code> on random 2-opt moves, as
+     * measured by <code>TourBenchmark</code> - arrays still win at 8000 vertexes, the lists from 10000 on.
+     */
+    public static final int TWO_LEVEL_THRESHOLD = 10000;
+
+    private Tours() {
+    }
+
+    /**
+     * @param tour permutation of vertex indexes, not modified
+     * @return Mutable tour of the representation fastest for its size.
+     */
+    public static Tour of(int[] tour) {
+        return tour.length < TWO_LEVEL_THRESHOLD ? new ArrayTour(tour) : new TwoLevelListTour(tour);
+    }
+
+    /**
+     * Length of closed tour. Rounding depends on the order of summing, so the same tour read from another vertex
+     * or direction may differ in the last bits - compare lengths with a tolerance.
+     *
+     * @param graph distances between vertexes
+     * @param tour  permutation of vertex indexes
+     * @return Sum of distances between consecutive vertexes, including the closing one.
+     */
+    public static double length(DistanceGraph graph, int[] tour) {
+        if (tour.length == 0)
+            return 0.0;
+
+        double length = graph.getDistance(tour[tour.length - 1], tour[0]);
+        for (int i = 0; i + 1 < tour.length; i++)
+            length += graph.getDistance(tour[i], tour[i + 1]);
+
+        return length;
+    }
+
+    /**
+     * Nearest neighbour heuristic - <code>O(n^2)</code>, used when there is no time for anything better.
+     *
+     * @param graph distances between vertexes
+     * @return Tour starting at vertex <code>0</code>, always going to the closest unvisited vertex.
+     */
+    public static int[] nearestNeighbour(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        if (n == 0)
+            return tour;
+
+        visited[0] = true;
+        for (int i = 1; i < n; i++) {
+            int current = tour[i - 1];
+            int closest = -1;
+            double distance = Double.POSITIVE_INFINITY;
+
+            for (int v = 0; v < n; v++)
+                if (!visited[v] && (closest < 0 || graph.getDistance(current, v) < distance)) {
+                    closest = v;
+                    distance = graph.getDistance(current, v);
+                }
+
+            tour[i] = closest;
+            visited[closest] = true;
+        }
+
+        return tour;
+    }
+
+    /**
+     * Visits points in order of a space-filling curve - Hilbert curve on plane, Z-order curve in space - over a
+     * <code>2^16</code> (resp. <code>2^10</code>) grid per axis. Consecutive points on such curve are close to each
+     * other, so the tour is about 25% (plane) longer than optimal, yet it takes only a sort of <code>n</code> keys.
+     *
+     * @param graph points
+     * @return Tour of all points.
+     */
+    public static int[] spaceFillingCurve(PointSetGraph graph) {
+        int n = graph.getNumberVertexes();
+        int dimensions = graph.getDimensions();
+        int bits = dimensions == 2 ? 16 : 10;
+
+        double[] low = new double[dimensions];
+        double[] scale = new double[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            double high = Double.NEGATIVE_INFINITY;
+            low[d] = Double.POSITIVE_INFINITY;
+            for (int v = 0; v < n; v++) {
+                low[d] = Math.min(low[d], graph.getCoordinate(v, d));
+                high = Math.max(high, graph.getCoordinate(v, d));
+            }
+            scale[d] = high > low[d] ? ((1 << bits) - 1) / (high - low[d]) : 0.0;
+        }
+
+        // curve key in upper bits, vertex in lower 31 bits
+        long[] keys = new long[n];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int[] cell = new int[3];
+            for (int d = 0; d < dimensions; d++)
+                cell[d] = (int) ((graph.getCoordinate(v, d) - low[d]) * scale[d]);
+
+            long key = dimensions == 2 ? hilbert(cell[0], cell[1], bits) : morton(cell, bits);
+            keys[v] = key << 31 | v;
+        });
+        Arrays.parallelSort(keys);
+
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++)
+            tour[i] = (int) (keys[i] & Integer.MAX_VALUE);
+
+        return tour;
+    }
+
+    /**
+     * @return Position of cell <code>(x, y)</code> on Hilbert curve filling <code>2^bits x 2^bits</code> grid.
+     */
+    private static long hilbert(int x, int y, int bits) {
+        int last = (1 << bits) - 1;
+        long position = 0;
+
+        for (int s = 1 << (bits - 1); s > 0; s >>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            position += (long) s * s * ((3 * rx) ^ ry);
+
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = last - x;
+                    y = last - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * @return Position of cell on Z-order curve - interleaved bits of its coordinates.
+     */
+    private static long morton(int[] cell, int bits) {
+        long position = 0;
+
+        for (int b = bits - 1; b >= 0; b--)
+            for (int d = 0; d < cell.length; d++)
+                position = position << 1 | (cell[d] >>> b & 1);
+
+        return position;
+    }
+
+    /**
+     * Translates tour back to the object graph.
+     *
+     * @param graph graph whose vertex indexes are used in <code>tour</code>
+     * @param tour  permutation of vertex indexes
+     * @return Edges of closed tour, in tour order.
+     */
+    public static <T extends Number> List<Edge<T>> route(Graph<T> graph, int[] tour) {
+        List<Edge<T>> route = new ArrayList<>(tour.length);
+
+        for (int i = 0; i < tour.length; i++)
+            route.add(graph.getVertex(tour[i]).getEdge(graph.getVertex(tour[(i + 1) % tour.length])));
+
+        return route;
+    }
+}
@@ -1,20 +1,45 @@
 package com.fjps.main.calculation;
 
-import com.fjps.main.graph.Edge;
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.DistanceMatrix;
 import com.fjps.main.graph.Graph;
 
-import java.util.List;
-
 /**
  * Simple interface for solving/estimating TSP problem.
+ * <p>
+ * Solvers keep no state between calls - everything about a solve is in the returned <code>SolveResult</code>, so
+ * one instance may serve many threads at once.
  *
  * Created by Patryk Stopyra on 22/03/16.
  */
 public interface TravellingSalesmanProblemSolver<T extends Number> {
 
-    T calculateOptimum(Graph<T> graph);
+    /**
+     * @param graph object graph
+     * @return Result with tour translated to edges of <code>graph</code>.
+     */
+    default SolveResult<T> calculateOptimum(Graph<T> graph) {
+        return calculateOptimum(DistanceMatrix.of(graph)).withRoute(graph);
+    }
 
-    List<Edge<T>> getLastOptimalPath();
+    /**
+     * Solves the problem directly on primitive distances, without building any <code>Vertex</code>/<code>Edge</code>.
+     *
+     * @param graph dense graph addressed by vertex indexes
+     * @return Found tour and its cost.
+     */
+    default SolveResult<T> calculateOptimum(DistanceGraph graph) {
+        return solve(graph, SolveOptions.unlimited());
+    }
 
-    String getPathAsString();
+    /**
+     * Anytime variant of <code>calculateOptimum()</code> - stops at the deadline or on cancellation and returns the
+     * best tour found so far. Every improving tour is passed to the listener of <code>options</code>. Solvers which
+     * cannot be interrupted ignore the deadline and report just the result.
+     *
+     * @param graph   dense graph addressed by vertex indexes
+     * @param options deadline, cancellation token and listener
+     * @return Found tour and its cost.
+     */
+    SolveResult<T> solve(DistanceGraph graph, SolveOptions options);
 }
@@ -0,0 +1,337 @@
+package com.fjps.main.calculation;
+
+/**
+ * Two-level doubly-linked list tour (Fredman et al.) - <code>flip()</code> costs <code>O(sqrt(n))</code>.
+ * <p>
+ * Tour is split into segments of about <code>sqrt(n)</code> consecutive vertexes. Vertexes of a segment are linked
+ * and numbered in its own, internal order; segment has a reversal bit telling whether tour goes along internal order
+ * or against it, and a rank - its position in the doubly-linked list of segments. Position of a vertex in tour is
+ * then (rank of segment, number within segment, read according to the reversal bit), so <code>next()</code>,
+ * <code>previous()</code> and <code>between()</code> work in constant time.
+ * <p>
+ * Path is reversed by splitting segments at both its ends, so that it consists of whole segments, then reversing
+ * order of these segments and flipping their reversal bits. Segments which got too small are merged with a
+ * neighbour afterwards, too big ones are split. Every step touches at most a few segments of <code>O(sqrt(n))</code>
+ * vertexes and renumbers <code>O(sqrt(n))</code> segments.
+ */
+public final class TwoLevelListTour implements Tour {
+
+    private final int n;
+    private final int groupSize;
+
+    private final int[] parent;
+    private final int[] number;
+    private final int[] nextLink;
+    private final int[] previousLink;
+
+    private final boolean[] reversed;
+    private final int[] rank;
+    private final int[] first;
+    private final int[] last;
+    private final int[] nextSegment;
+    private final int[] previousSegment;
+    private final int[] size;
+
+    private final int[] freeSegments;
+    private int freeCount;
+    private int segmentCount;
+
+    private final int[] buffer;
+
+    public TwoLevelListTour(int[] tour) {
+        this.n = tour.length;
+        this.groupSize = Math.max(8, (int) Math.sqrt(n));
+
+        parent = new int[n];
+        number = new int[n];
+        nextLink = new int[n];
+        previousLink = new int[n];
+
+        int capacity = n + 1;
+        reversed = new boolean[capacity];
+        rank = new int[capacity];
+        first = new int[capacity];
+        last = new int[capacity];
+        nextSegment = new int[capacity];
+        previousSegment = new int[capacity];
+        size = new int[capacity];
+
+        freeSegments = new int[capacity];
+        for (int s = capacity - 1; s >= 0; s--)
+            freeSegments[freeCount++] = s;
+
+        buffer = new int[n];
+
+        int previous = -1;
+        int head = -1;
+        for (int from = 0; from < n; from += groupSize) {
+            int count = Math.min(groupSize, n - from);
+            int s = allocate();
+            System.arraycopy(tour, from, buffer, 0, count);
+            build(s, buffer, count);
+
+            if (previous < 0) {
+                head = s;
+                nextSegment[s] = previousSegment[s] = s;
+            } else
+                insertAfter(s, previous);
+            previous = s;
+        }
+
+        if (head >= 0)
+            renumber(head);
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int next(int v) {
+        int s = parent[v];
+        if (v == tail(s))
+            return head(nextSegment[s]);
+
+        return reversed[s] ? previousLink[v] : nextLink[v];
+    }
+
+    @Override
+    public int previous(int v) {
+        int s = parent[v];
+        if (v == head(s))
+            return tail(previousSegment[s]);
+
+        return reversed[s] ? nextLink[v] : previousLink[v];
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        long ka = key(a);
+        long kb = key(b);
+        long kc = key(c);
+
+        return ka <= kc ? ka <= kb && kb <= kc : kb >= ka || kb <= kc;
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (next(a) == b)
+            reversePath(b, c);
+        else
+            reversePath(a, d);
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] tour = new int[n];
+
+        for (int i = 0, v = 0; i < n; i++, v = next(v))
+            tour[i] = v;
+
+        return tour;
+    }
+
+    private int head(int s) {
+        return reversed[s] ? last[s] : first[s];
+    }
+
+    private int tail(int s) {
+        return reversed[s] ? first[s] : last[s];
+    }
+
+    private long key(int v) {
+        int s = parent[v];
+        return ((long) rank[s] << 32) | (reversed[s] ? Integer.MAX_VALUE - number[v] : number[v]);
+    }
+
+    /**
+     * Reverses path going forward from <code>x</code> to <code>y</code> (or the rest of the tour, if it is shorter).
+     */
+    private void reversePath(int x, int y) {
+        if (x == y || next(y) == x)
+            return;
+
+        int afterY = next(y);
+        int beforeX = previous(x);
+
+        split(x);
+        split(afterY);
+
+        int from = parent[x];
+        int to = parent[y];
+        int vertexes = size[from];
+        for (int s = from; s != to; s = nextSegment[s])
+            vertexes += size[nextSegment[s]];
+
+        if (2 * vertexes > n) {
+            from = parent[afterY];
+            to = parent[beforeX];
+        }
+
+        reverseSegments(from, to);
+
+        balance(parent[x]);
+        balance(parent[y]);
+        balance(parent[afterY]);
+        balance(parent[beforeX]);
+
+        renumber(parent[x]);
+    }
+
+    /**
+     * Reverses order of segments <code>from .. to</code> (in list order) and flips their reversal bits. Ranks are
+     * left stale.
+     */
+    private void reverseSegments(int from, int to) {
+        int before = previousSegment[from];
+        int after = nextSegment[to];
+
+        int count = 0;
+        for (int s = from; ; s = nextSegment[s]) {
+            buffer[count++] = s;
+            if (s == to)
+                break;
+        }
+
+        for (int i = 0; i < count; i++)
+            reversed[buffer[i]] = !reversed[buffer[i]];
+
+        nextSegment[before] = buffer[count - 1];
+        previousSegment[buffer[count - 1]] = before;
+        for (int i = count - 1; i > 0; i--) {
+            nextSegment[buffer[i]] = buffer[i - 1];
+            previousSegment[buffer[i - 1]] = buffer[i];
+        }
+        nextSegment[buffer[0]] = after;
+        previousSegment[after] = buffer[0];
+    }
+
+    /**
+     * Makes <code>v</code> the first vertex (in tour order) of its segment; the smaller part of the segment is
+     * moved to a new one. Ranks are left stale.
+     */
+    private void split(int v) {
+        int s = parent[v];
+        if (v == head(s))
+            return;
+
+        int before = reversed[s] ? number[last[s]] - number[v] : number[v] - number[first[s]];
+        int t = allocate();
+
+        if (before <= size[s] - before) {
+            for (int i = 0, u = head(s); i < before; i++, u = next(u))
+                buffer[i] = u;
+
+            if (reversed[s])
+                last[s] = v;
+            else
+                first[s] = v;
+            size[s] -= before;
+
+            build(t, buffer, before);
+            insertAfter(t, previousSegment[s]);
+        } else {
+            int count = size[s] - before;
+            int newTail = reversed[s] ? nextLink[v] : previousLink[v];
+            for (int i = 0, u = v; i < count; i++, u = next(u))
+                buffer[i] = u;
+
+            if (reversed[s])
+                first[s] = newTail;
+            else
+                last[s] = newTail;
+            size[s] -= count;
+
+            build(t, buffer, count);
+            insertAfter(t, s);
+        }
+    }
+
+    /**
+     * Merges too small segment with its smaller neighbour, splits too big one in halves.
+     */
+    private void balance(int s) {
+        if (size[s] > 2 * groupSize) {
+            int middle = head(s);
+            for (int i = 0; i < size[s] / 2; i++)
+                middle = next(middle);
+            split(middle);
+            return;
+        }
+
+        if (segmentCount == 1 || 2 * size[s] >= groupSize)
+            return;
+
+        int neighbour = size[previousSegment[s]] <= size[nextSegment[s]] ? previousSegment[s] : nextSegment[s];
+        if (size[s] + size[neighbour] > 2 * groupSize)
+            return;
+
+        if (neighbour == previousSegment[s])
+            merge(neighbour, s);
+        else
+            merge(s, nextSegment[s]);
+    }
+
+    /**
+     * Merges segment <code>t</code> into preceding segment <code>s</code>. Ranks are left stale.
+     */
+    private void merge(int s, int t) {
+        int count = 0;
+        for (int i = 0, u = head(s); i < size[s] + size[t]; i++, u = next(u))
+            buffer[count++] = u;
+
+        int after = nextSegment[t];
+        nextSegment[s] = after;
+        previousSegment[after] = s;
+        release(t);
+
+        build(s, buffer, count);
+    }
+
+    /**
+     * Fills segment with vertexes in tour order, numbered from <code>0</code>, not reversed.
+     */
+    private void build(int s, int[] vertexes, int count) {
+        for (int i = 0; i < count; i++) {
+            int v = vertexes[i];
+            parent[v] = s;
+            number[v] = i;
+            if (i > 0) {
+                nextLink[vertexes[i - 1]] = v;
+                previousLink[v] = vertexes[i - 1];
+            }
+        }
+
+        first[s] = vertexes[0];
+        last[s] = vertexes[count - 1];
+        size[s] = count;
+        reversed[s] = false;
+    }
+
+    private void insertAfter(int t, int s) {
+        nextSegment[t] = nextSegment[s];
+        previousSegment[t] = s;
+        previousSegment[nextSegment[s]] = t;
+        nextSegment[s] = t;
+    }
+
+    private void renumber(int start) {
+        int r = 0;
+        for (int s = start; ; s = nextSegment[s]) {
+            rank[s] = r++;
+            if (nextSegment[s] == start)
+                break;
+        }
+    }
+
+    private int allocate() {
+        segmentCount++;
+        return freeSegments[--freeCount];
+    }
+
+    private void release(int s) {
+        segmentCount--;
+        freeSegments[freeCount++] = s;
+    }
+}
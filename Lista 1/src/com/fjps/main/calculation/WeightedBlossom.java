@@ -0,0 +1,631 @@
+package com.fjps.main.calculation;
+
+import java.util.Arrays;
+
+/**
+ * Edmonds' weighted blossom algorithm for maximum weight matching in general graphs, <code>O(n^3)</code>.
+ * <p>
+ * Implementation follows the primal-dual method as described by Galil ("Efficient algorithms for finding maximum
+ * matching in graphs", 1986) and the well known implementation by J. van Rantwijk. Edges are given as
+ * primitive arrays, weights are <code>long</code> and must be even - then all dual variables stay integral and
+ * no floating point comparison is ever needed. Instead of heap, every vertex and blossom keeps its least-slack edge
+ * (<code>bestEdge</code>), which keeps dual update in <code>O(n)</code>.
+ * <p>
+ * Vertexes are <code>0 .. n-1</code>, blossoms <code>n .. 2n-1</code>. Edge <code>k</code> has two endpoints:
+ * <code>2k</code> and <code>2k+1</code>.
+ */
+class WeightedBlossom {
+
+    private final int n;
+    private final int edgesAmount;
+    private final int[] ends;
+    private final long[] weights;
+    private final boolean maxCardinality;
+
+    private final int[] endpoint;
+    private final int[][] neighbourEnds;
+
+    private final int[] mate;
+    private final int[] label;
+    private final int[] labelEnd;
+    private final int[] inBlossom;
+    private final int[] blossomParent;
+    private final int[][] blossomChilds;
+    private final int[] blossomBase;
+    private final int[][] blossomEnds;
+    private final int[] bestEdge;
+    private final int[][] blossomBestEdges;
+    private final IntList unusedBlossoms;
+    private final long[] dual;
+    private final boolean[] allowEdge;
+    private final IntList queue;
+
+    /**
+     * @param n              number of vertexes
+     * @param ends           edges as pairs of vertex indexes
+     * @param weights        even weights of edges
+     * @param maxCardinality if <code>true</code> only maximum cardinality matchings are considered
+     */
+    WeightedBlossom(int n, int[] ends, long[] weights, boolean maxCardinality) {
+        this.n = n;
+        this.edgesAmount = weights.length;
+        this.ends = ends;
+        this.weights = weights;
+        this.maxCardinality = maxCardinality;
+
+        endpoint = ends;
+
+        int[] degrees = new int[n];
+        for (int v : ends)
+            degrees[v]++;
+        neighbourEnds = new int[n][];
+        for (int v = 0; v < n; v++)
+            neighbourEnds[v] = new int[degrees[v]];
+        Arrays.fill(degrees, 0);
+        for (int k = 0; k < edgesAmount; k++) {
+            int i = ends[2 * k];
+            int j = ends[2 * k + 1];
+            neighbourEnds[i][degrees[i]++] = 2 * k + 1;
+            neighbourEnds[j][degrees[j]++] = 2 * k;
+        }
+
+        long maxWeight = 0;
+        for (long w : weights)
+            maxWeight = Math.max(maxWeight, w);
+
+        mate = new int[n];
+        label = new int[2 * n];
+        labelEnd = new int[2 * n];
+        inBlossom = new int[n];
+        blossomParent = new int[2 * n];
+        blossomChilds = new int[2 * n][];
+        blossomBase = new int[2 * n];
+        blossomEnds = new int[2 * n][];
+        bestEdge = new int[2 * n];
+        blossomBestEdges = new int[2 * n][];
+        unusedBlossoms = new IntList(n);
+        dual = new long[2 * n];
+        allowEdge = new boolean[edgesAmount];
+        queue = new IntList(n);
+
+        Arrays.fill(mate, -1);
+        Arrays.fill(labelEnd, -1);
+        Arrays.fill(blossomParent, -1);
+        Arrays.fill(blossomBase, -1);
+        Arrays.fill(bestEdge, -1);
+        for (int v = 0; v < n; v++) {
+            inBlossom[v] = v;
+            blossomBase[v] = v;
+            dual[v] = maxWeight;
+        }
+        for (int b = n; b < 2 * n; b++)
+            unusedBlossoms.add(b);
+    }
+
+    /**
+     * @return Mate of every vertex or <code>-1</code> for single ones.
+     */
+    int[] solve() {
+        for (int stage = 0; stage < n; stage++) {
+            Arrays.fill(label, 0);
+            Arrays.fill(bestEdge, -1);
+            Arrays.fill(blossomBestEdges, n, 2 * n, null);
+            Arrays.fill(allowEdge, false);
+            queue.clear();
+
+            for (int v = 0; v < n; v++)
+                if (mate[v] == -1 && label[inBlossom[v]] == 0)
+                    assignLabel(v, 1, -1);
+
+            boolean augmented = false;
+            while (true) {
+                while (queue.size() > 0 && !augmented) {
+                    int v = queue.pop();
+
+                    for (int p : neighbourEnds[v]) {
+                        int k = p / 2;
+                        int w = endpoint[p];
+
+                        if (inBlossom[v] == inBlossom[w])
+                            continue;
+
+                        long kSlack = 0;
+                        if (!allowEdge[k]) {
+                            kSlack = slack(k);
+                            if (kSlack <= 0)
+                                allowEdge[k] = true;
+                        }
+
+                        if (allowEdge[k]) {
+                            if (label[inBlossom[w]] == 0) {
+                                assignLabel(w, 2, p ^ 1);
+                            } else if (label[inBlossom[w]] == 1) {
+                                int base = scanBlossom(v, w);
+                                if (base >= 0) {
+                                    addBlossom(base, k);
+                                } else {
+                                    augmentMatching(k);
+                                    augmented = true;
+                                    break;
+                                }
+                            } else if (label[w] == 0) {
+                                label[w] = 2;
+                                labelEnd[w] = p ^ 1;
+                            }
+                        } else if (label[inBlossom[w]] == 1) {
+                            int b = inBlossom[v];
+                            if (bestEdge[b] == -1 || kSlack < slack(bestEdge[b]))
+                                bestEdge[b] = k;
+                        } else if (label[w] == 0) {
+                            if (bestEdge[w] == -1 || kSlack < slack(bestEdge[w]))
+                                bestEdge[w] = k;
+                        }
+                    }
+                }
+
+                if (augmented)
+                    break;
+
+                int deltaType = -1;
+                long delta = 0;
+                int deltaEdge = -1;
+                int deltaBlossom = -1;
+
+                if (!maxCardinality) {
+                    deltaType = 1;
+                    delta = minVertexDual();
+                }
+
+                for (int v = 0; v < n; v++)
+                    if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+                        long d = slack(bestEdge[v]);
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 2;
+                            deltaEdge = bestEdge[v];
+                        }
+                    }
+
+                for (int b = 0; b < 2 * n; b++)
+                    if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+                        long d = slack(bestEdge[b]) / 2;
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 3;
+                            deltaEdge = bestEdge[b];
+                        }
+                    }
+
+                for (int b = n; b < 2 * n; b++)
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1 && label[b] == 2
+                            && (deltaType == -1 || dual[b] < delta)) {
+                        delta = dual[b];
+                        deltaType = 4;
+                        deltaBlossom = b;
+                    }
+
+                if (deltaType == -1) {
+                    // no further improvement possible; max-cardinality optimum reached
+                    deltaType = 1;
+                    delta = Math.max(0, minVertexDual());
+                }
+
+                for (int v = 0; v < n; v++)
+                    if (label[inBlossom[v]] == 1)
+                        dual[v] -= delta;
+                    else if (label[inBlossom[v]] == 2)
+                        dual[v] += delta;
+
+                for (int b = n; b < 2 * n; b++)
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+                        if (label[b] == 1)
+                            dual[b] += delta;
+                        else if (label[b] == 2)
+                            dual[b] -= delta;
+                    }
+
+                if (deltaType == 1) {
+                    break;
+                } else if (deltaType == 2) {
+                    allowEdge[deltaEdge] = true;
+                    int i = ends[2 * deltaEdge];
+                    if (label[inBlossom[i]] == 0)
+                        i = ends[2 * deltaEdge + 1];
+                    queue.add(i);
+                } else if (deltaType == 3) {
+                    allowEdge[deltaEdge] = true;
+                    queue.add(ends[2 * deltaEdge]);
+                } else {
+                    expandBlossom(deltaBlossom, false);
+                }
+            }
+
+            if (!augmented)
+                break;
+
+            for (int b = n; b < 2 * n; b++)
+                if (blossomParent[b] == -1 && blossomBase[b] >= 0 && label[b] == 1 && dual[b] == 0)
+                    expandBlossom(b, true);
+        }
+
+        int[] mates = new int[n];
+        for (int v = 0; v < n; v++)
+            mates[v] = mate[v] >= 0 ? endpoint[mate[v]] : -1;
+
+        return mates;
+    }
+
+    /**
+     * Reduced cost of vertex pair under final dual variables - also for pairs which were not given as edges.
+     * Duals of blossoms containing both vertexes are included, so negative value means that dual solution is
+     * not feasible for the pair, i.e. adding such edge could improve the matching.
+     *
+     * @param i      first vertex
+     * @param j      second vertex
+     * @param weight even weight of pair
+     * @return Doubled slack of dual constraint of the pair.
+     */
+    long pairSlack(int i, int j, long weight) {
+        long pairSlack = dual[i] + dual[j] - 2 * weight;
+        if (pairSlack >= 0 || inBlossom[i] != inBlossom[j])
+            return pairSlack;
+
+        for (int bi = blossomParent[i]; bi != -1; bi = blossomParent[bi])
+            for (int bj = blossomParent[j]; bj != -1; bj = blossomParent[bj])
+                if (bi == bj)
+                    pairSlack += 2 * dual[bi];
+
+        return pairSlack;
+    }
+
+    private long slack(int k) {
+        return dual[ends[2 * k]] + dual[ends[2 * k + 1]] - 2 * weights[k];
+    }
+
+    private long minVertexDual() {
+        long min = dual[0];
+        for (int v = 1; v < n; v++)
+            min = Math.min(min, dual[v]);
+
+        return min;
+    }
+
+    private void blossomLeaves(int b, IntList leaves) {
+        if (b < n) {
+            leaves.add(b);
+            return;
+        }
+
+        for (int t : blossomChilds[b])
+            blossomLeaves(t, leaves);
+    }
+
+    private IntList blossomLeaves(int b) {
+        IntList leaves = new IntList(4);
+        blossomLeaves(b, leaves);
+
+        return leaves;
+    }
+
+    private void assignLabel(int w, int t, int p) {
+        while (true) {
+            int b = inBlossom[w];
+
+            label[w] = label[b] = t;
+            labelEnd[w] = labelEnd[b] = p;
+            bestEdge[w] = bestEdge[b] = -1;
+
+            if (t == 1) {
+                blossomLeaves(b, queue);
+                return;
+            }
+
+            int base = blossomBase[b];
+            w = endpoint[mate[base]];
+            t = 1;
+            p = mate[base] ^ 1;
+        }
+    }
+
+    /**
+     * Traces back from <code>v</code> and <code>w</code> to discover either new blossom or augmenting path.
+     *
+     * @return Base vertex of new blossom or <code>-1</code> when augmenting path was found.
+     */
+    private int scanBlossom(int v, int w) {
+        IntList path = new IntList(8);
+        int base = -1;
+
+        while (v != -1 || w != -1) {
+            int b = inBlossom[v];
+
+            if ((label[b] & 4) != 0) {
+                base = blossomBase[b];
+                break;
+            }
+
+            path.add(b);
+            label[b] = 5;
+
+            if (labelEnd[b] == -1) {
+                v = -1;
+            } else {
+                v = endpoint[labelEnd[b]];
+                b = inBlossom[v];
+                v = endpoint[labelEnd[b]];
+            }
+
+            if (w != -1) {
+                int swap = v;
+                v = w;
+                w = swap;
+            }
+        }
+
+        for (int i = 0; i < path.size(); i++)
+            label[path.get(i)] = 1;
+
+        return base;
+    }
+
+    private void addBlossom(int base, int k) {
+        int v = ends[2 * k];
+        int w = ends[2 * k + 1];
+        int bb = inBlossom[base];
+        int bv = inBlossom[v];
+        int bw = inBlossom[w];
+
+        int b = unusedBlossoms.pop();
+        blossomBase[b] = base;
+        blossomParent[b] = -1;
+        blossomParent[bb] = b;
+
+        IntList path = new IntList(8);
+        IntList endPs = new IntList(8);
+
+        while (bv != bb) {
+            blossomParent[bv] = b;
+            path.add(bv);
+            endPs.add(labelEnd[bv]);
+            v = endpoint[labelEnd[bv]];
+            bv = inBlossom[v];
+        }
+        path.add(bb);
+        path.reverse();
+        endPs.reverse();
+        endPs.add(2 * k);
+
+        while (bw != bb) {
+            blossomParent[bw] = b;
+            path.add(bw);
+            endPs.add(labelEnd[bw] ^ 1);
+            w = endpoint[labelEnd[bw]];
+            bw = inBlossom[w];
+        }
+
+        blossomChilds[b] = path.toArray();
+        blossomEnds[b] = endPs.toArray();
+
+        label[b] = 1;
+        labelEnd[b] = labelEnd[bb];
+        dual[b] = 0;
+
+        IntList leaves = blossomLeaves(b);
+        for (int i = 0; i < leaves.size(); i++) {
+            int leaf = leaves.get(i);
+            if (label[inBlossom[leaf]] == 2)
+                queue.add(leaf);
+            inBlossom[leaf] = b;
+        }
+
+        int[] bestEdgeTo = new int[2 * n];
+        Arrays.fill(bestEdgeTo, -1);
+
+        for (int child : blossomChilds[b]) {
+            if (blossomBestEdges[child] == null) {
+                IntList childLeaves = blossomLeaves(child);
+                for (int i = 0; i < childLeaves.size(); i++)
+                    for (int p : neighbourEnds[childLeaves.get(i)])
+                        considerBestEdge(p / 2, b, bestEdgeTo);
+            } else {
+                for (int edge : blossomBestEdges[child])
+                    considerBestEdge(edge, b, bestEdgeTo);
+            }
+
+            blossomBestEdges[child] = null;
+            bestEdge[child] = -1;
+        }
+
+        IntList best = new IntList(8);
+        for (int edge : bestEdgeTo)
+            if (edge != -1)
+                best.add(edge);
+        blossomBestEdges[b] = best.toArray();
+
+        bestEdge[b] = -1;
+        for (int edge : blossomBestEdges[b])
+            if (bestEdge[b] == -1 || slack(edge) < slack(bestEdge[b]))
+                bestEdge[b] = edge;
+    }
+
+    private void considerBestEdge(int k, int b, int[] bestEdgeTo) {
+        int j = inBlossom[ends[2 * k + 1]] == b ? ends[2 * k] : ends[2 * k + 1];
+        int bj = inBlossom[j];
+
+        if (bj != b && label[bj] == 1 && (bestEdgeTo[bj] == -1 || slack(k) < slack(bestEdgeTo[bj])))
+            bestEdgeTo[bj] = k;
+    }
+
+    private void expandBlossom(int b, boolean endStage) {
+        for (int s : blossomChilds[b]) {
+            blossomParent[s] = -1;
+            if (s < n) {
+                inBlossom[s] = s;
+            } else if (endStage && dual[s] == 0) {
+                expandBlossom(s, true);
+            } else {
+                IntList leaves = blossomLeaves(s);
+                for (int i = 0; i < leaves.size(); i++)
+                    inBlossom[leaves.get(i)] = s;
+            }
+        }
+
+        if (!endStage && label[b] == 2) {
+            int[] childs = blossomChilds[b];
+            int[] endPs = blossomEnds[b];
+            int entryChild = inBlossom[endpoint[labelEnd[b] ^ 1]];
+
+            int j = indexOf(childs, entryChild);
+            int jStep;
+            int endpTrick;
+            if ((j & 1) != 0) {
+                j -= childs.length;
+                jStep = 1;
+                endpTrick = 0;
+            } else {
+                jStep = -1;
+                endpTrick = 1;
+            }
+
+            int p = labelEnd[b];
+            while (j != 0) {
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[at(endPs, j - endpTrick) ^ endpTrick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+
+                allowEdge[at(endPs, j - endpTrick) / 2] = true;
+                j += jStep;
+                p = at(endPs, j - endpTrick) ^ endpTrick;
+
+                allowEdge[p / 2] = true;
+                j += jStep;
+            }
+
+            int bv = at(childs, j);
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelEnd[endpoint[p ^ 1]] = labelEnd[bv] = p;
+            bestEdge[bv] = -1;
+
+            j += jStep;
+            while (at(childs, j) != entryChild) {
+                bv = at(childs, j);
+
+                if (label[bv] == 1) {
+                    j += jStep;
+                    continue;
+                }
+
+                IntList leaves = blossomLeaves(bv);
+                int reached = -1;
+                for (int i = 0; i < leaves.size() && reached < 0; i++)
+                    if (label[leaves.get(i)] != 0)
+                        reached = leaves.get(i);
+
+                if (reached >= 0) {
+                    label[reached] = 0;
+                    label[endpoint[mate[blossomBase[bv]]]] = 0;
+                    assignLabel(reached, 2, labelEnd[reached]);
+                }
+
+                j += jStep;
+            }
+        }
+
+        label[b] = labelEnd[b] = -1;
+        blossomChilds[b] = blossomEnds[b] = null;
+        blossomBase[b] = -1;
+        blossomBestEdges[b] = null;
+        bestEdge[b] = -1;
+        unusedBlossoms.add(b);
+    }
+
+    private void augmentBlossom(int b, int v) {
+        int t = v;
+        while (blossomParent[t] != b)
+            t = blossomParent[t];
+        if (t >= n)
+            augmentBlossom(t, v);
+
+        int[] childs = blossomChilds[b];
+        int[] endPs = blossomEnds[b];
+
+        int i = indexOf(childs, t);
+        int j = i;
+        int jStep;
+        int endpTrick;
+        if ((i & 1) != 0) {
+            j -= childs.length;
+            jStep = 1;
+            endpTrick = 0;
+        } else {
+            jStep = -1;
+            endpTrick = 1;
+        }
+
+        while (j != 0) {
+            j += jStep;
+            t = at(childs, j);
+            int p = at(endPs, j - endpTrick) ^ endpTrick;
+            if (t >= n)
+                augmentBlossom(t, endpoint[p]);
+
+            j += jStep;
+            t = at(childs, j);
+            if (t >= n)
+                augmentBlossom(t, endpoint[p ^ 1]);
+
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
+
+        blossomChilds[b] = rotate(childs, i);
+        blossomEnds[b] = rotate(endPs, i);
+        blossomBase[b] = blossomBase[blossomChilds[b][0]];
+    }
+
+    private void augmentMatching(int k) {
+        for (int side = 0; side < 2; side++) {
+            int s = ends[2 * k + side];
+            int p = 2 * k + 1 - side;
+
+            while (true) {
+                int bs = inBlossom[s];
+                if (bs >= n)
+                    augmentBlossom(bs, s);
+                mate[s] = p;
+
+                if (labelEnd[bs] == -1)
+                    break;
+
+                int t = endpoint[labelEnd[bs]];
+                int bt = inBlossom[t];
+                s = endpoint[labelEnd[bt]];
+                int j = endpoint[labelEnd[bt] ^ 1];
+                if (bt >= n)
+                    augmentBlossom(bt, j);
+                mate[j] = labelEnd[bt];
+                p = labelEnd[bt] ^ 1;
+            }
+        }
+    }
+
+    private static int at(int[] array, int index) {
+        return array[index < 0 ? index + array.length : index];
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++)
+            if (array[i] == value)
+                return i;
+
+        return -1;
+    }
+
+    private static int[] rotate(int[] array, int shift) {
+        int[] rotated = new int[array.length];
+        System.arraycopy(array, shift, rotated, 0, array.length - shift);
+        System.arraycopy(array, 0, rotated, array.length - shift, shift);
+
+        return rotated;
+    }
+}
@@ -1,57 +1,192 @@
 package com.fjps.main.graph;
 
-import java.util.*;
+import java.util.Arrays;
 
 /**
+ * Dijkstra's shortest paths algorithm on indexed d-ary heap.
+ * <p>
+ * The engine only reads its graph - distances and predecessors of every query are kept in a new
+ * <code>Paths</code> object, so one instance may serve any number of concurrent queries, as long as nobody
+ * modifies the graph meanwhile.
+ * <p>
+ * Rows of <code>SparseGraph</code> are read straight from its arrays, other graphs are asked for neighbours.
+ * <p>
  * Created by fifi on 26.03.2016.
  */
 public class Dijkstra
 {
+    public static final int DEFAULT_ARITY = 4;
+
+    private final DistanceGraph graph;
+    private final int arity;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    public Dijkstra(DistanceGraph graph)
+    {
+        this(graph, DEFAULT_ARITY);
+    }
+
+    public Dijkstra(DistanceGraph graph, int arity)
+    {
+        this.graph = graph;
+        this.arity = arity;
+
+        SparseGraph sparse = graph instanceof SparseGraph ? (SparseGraph) graph : null;
+        this.offsets = sparse == null ? null : sparse.getOffsets();
+        this.targets = sparse == null ? null : sparse.getTargets();
+        this.weights = sparse == null ? null : sparse.getWeights();
+    }
+
     /**
      * Computes paths from source node to others using Dijkstra algorithm
      * @param source - starting node
+     * @return shortest paths tree of <code>source</code>
      */
-    public static void computePaths(Vertex source)
+    public Paths computePaths(int source)
     {
-        source.setMinDistance(0.0);
-        PriorityQueue<Vertex<Double>> vertexQueue = new PriorityQueue<Vertex<Double>>();
-        vertexQueue.add(source);
+        return computePaths(source, -1);
+    }
 
-        while (!vertexQueue.isEmpty()) {
-            Vertex<Double> u = vertexQueue.poll();
+    /**
+     * Computes paths from source node, stopping as soon as <code>target</code> is reached.
+     * @param source - starting node
+     * @param target - destination node, <code>-1</code> to reach all nodes
+     * @return shortest paths tree of <code>source</code>, complete at least up to <code>target</code>
+     */
+    public Paths computePaths(int source, int target)
+    {
+        return target < 0 ? search(source, null) : search(source, new int[]{target});
+    }
 
-            // Visit each edge exiting u
-            for (Edge<Double> e : u.getNeighbourhood().values())
-            {
-                Vertex<Double> v = e.getV2();
-                if(v == u)
-                    v = e.getV1();
-
-                double weight = e.getWeight();
-                double distanceThroughU = u.getMinDistance() + weight;
-                if (distanceThroughU < v.getMinDistance()) {
-                    vertexQueue.remove(u);
-                    v.setMinDistance(distanceThroughU);
-                    v.setPrevious(u);
-                    vertexQueue.add(v);
+    /**
+     * Computes paths from source node, stopping as soon as all <code>targets</code> are reached - e.g. stops of
+     * a route in a big road network.
+     * @param source - starting node
+     * @param targets - destination nodes
+     * @return shortest paths tree of <code>source</code>, complete at least up to the farthest of
+     * <code>targets</code>
+     */
+    public Paths computePaths(int source, int[] targets)
+    {
+        return search(source, targets);
+    }
+
+    private Paths search(int source, int[] destinations)
+    {
+        int n = graph.getNumberVertexes();
+        Paths paths = new Paths(source, n);
+        IndexedHeap vertexQueue = new IndexedHeap(n, arity);
+
+        boolean[] destination = null;
+        int remaining = 0;
+        if (destinations != null) {
+            destination = new boolean[n];
+            for (int v : destinations)
+                if (!destination[v]) {
+                    destination[v] = true;
+                    remaining++;
                 }
+        }
+
+        paths.distances[source] = 0.0;
+        vertexQueue.insert(source, 0.0);
 
+        while (!vertexQueue.isEmpty()) {
+            int u = vertexQueue.poll();
+            if (destination != null && destination[u] && --remaining == 0)
+                break;
+
+            double throughU = paths.distances[u];
+
+            // Visit each edge exiting u
+            if (offsets != null) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++)
+                    relax(paths, vertexQueue, u, targets[e], throughU + weights[e]);
+            } else {
+                graph.forEachNeighbour(u, (v, weight) -> relax(paths, vertexQueue, u, v, throughU + weight));
             }
         }
+
+        return paths;
+    }
+
+    private static void relax(Paths paths, IndexedHeap vertexQueue, int u, int v, double distanceThroughU)
+    {
+        if (distanceThroughU < paths.distances[v]) {
+            if (vertexQueue.contains(v))
+                vertexQueue.decreaseKey(v, distanceThroughU);
+            else
+                vertexQueue.insert(v, distanceThroughU);
+
+            paths.distances[v] = distanceThroughU;
+            paths.previous[v] = u;
+        }
+    }
+
+    /**
+     * @return Length of the shortest path between given nodes.
+     */
+    public double distance(int source, int target)
+    {
+        return computePaths(source, target).getDistance(target);
     }
 
     /**
-     * Allows to select shortest path to selected(target) node
-     * @param target
-     * @return
+     * Result of a single query: distances from source and predecessors on shortest paths.
      */
-    public static List<Vertex<Double>> getShortestPathTo(Vertex<Double> target)
+    public static class Paths
     {
-        List<Vertex<Double>> path = new ArrayList<Vertex<Double>>();
-        for (Vertex<Double> vertex = target; vertex != null; vertex = vertex.getPrevious())
-            path.add(vertex);
+        private final int source;
+        private final double[] distances;
+        private final int[] previous;
+
+        private Paths(int source, int n)
+        {
+            this.source = source;
+            this.distances = new double[n];
+            this.previous = new int[n];
+
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            Arrays.fill(previous, -1);
+        }
+
+        public int getSource()
+        {
+            return source;
+        }
+
+        public double getDistance(int target)
+        {
+            return distances[target];
+        }
+
+        public int getPrevious(int target)
+        {
+            return previous[target];
+        }
+
+        /**
+         * Allows to select shortest path to selected(target) node
+         * @param target
+         * @return nodes of the path, from source to target; empty if target is not reachable
+         */
+        public int[] getShortestPathTo(int target)
+        {
+            if (distances[target] == Double.POSITIVE_INFINITY)
+                return new int[0];
 
-        Collections.reverse(path);
-        return path;
+            int length = 0;
+            for (int vertex = target; vertex != -1; vertex = previous[vertex])
+                length++;
+
+            int[] path = new int[length];
+            for (int vertex = target; vertex != -1; vertex = previous[vertex])
+                path[--length] = vertex;
+
+            return path;
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.fjps.main.graph;
+
+/**
+ * Read-only view of a graph whose vertexes are addressed by dense indexes <code>0 .. n-1</code>.
+ * <p>
+ * It is the primitive counterpart of <code>Graph</code> - solvers only ask for the number of vertexes and for
+ * the distance between two of them, so neither <code>Vertex</code>/<code>Edge</code> objects nor boxed weights
+ * are needed on the hot path. Missing connections are reported as <code>Double.POSITIVE_INFINITY</code>.
+ */
+public interface DistanceGraph {
+
+    int getNumberVertexes();
+
+    double getDistance(int v1, int v2);
+
+    /**
+     * Calls <code>consumer</code> for every vertex connected with <code>v</code> by finite distance. Default
+     * implementation scans the whole row; sparse graphs should iterate their adjacency instead.
+     *
+     * @param v        index of vertex
+     * @param consumer receiver of neighbour index and distance to it
+     */
+    default void forEachNeighbour(int v, NeighbourConsumer consumer) {
+        int n = getNumberVertexes();
+
+        for (int u = 0; u < n; u++) {
+            double distance = getDistance(v, u);
+            if (u != v && distance < Double.POSITIVE_INFINITY)
+                consumer.accept(u, distance);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if every pair of distinct vertexes is connected with finite distance.
+     */
+    default boolean isComplete() {
+        int n = getNumberVertexes();
+
+        for (int i = 0; i < n - 1; i++)
+            for (int j = i + 1; j < n; j++)
+                if (getDistance(i, j) == Double.POSITIVE_INFINITY)
+                    return false;
+
+        return true;
+    }
+
+    /**
+     * @param v index of vertex
+     * @return Human readable name of vertex, used only for printing paths.
+     */
+    default String getLabel(int v) {
+        return "V" + v;
+    }
+
+    @FunctionalInterface
+    interface NeighbourConsumer {
+
+        void accept(int neighbour, double distance);
+    }
+}
@@ -0,0 +1,164 @@
+package com.fjps.main.graph;
+
+import java.util.Arrays;
+
+/**
+ * Dense graph implementation keeping all distances in one flat, row-major <code>double[]</code>.
+ * <p>
+ * Every instance we solve is a complete graph, so a matrix is both smaller and faster than
+ * <code>Graph</code>, which needs a <code>Vertex</code>, an <code>Edge</code> and a boxed weight per connection.
+ * The matrix is symmetric - <code>setDistance()</code> updates both cells.
+ */
+public class DistanceMatrix implements DistanceGraph {
+
+    /**
+     * Largest size for which <code>size * size</code> still fits into an array index.
+     */
+    public static final int MAX_SIZE = 46340;
+
+    private final int size;
+    private final double[] distances;
+    private final String[] labels;
+    private long edgesAmount;
+    private volatile EdgeIndex edgeIndex;
+
+    public DistanceMatrix(int size) {
+        this(size, null);
+    }
+
+    public DistanceMatrix(int size, String[] labels) {
+        if (size < 0 || size > MAX_SIZE)
+            throw new IllegalArgumentException("Cannot build distance matrix for " + size + " vertexes.");
+        if (labels != null && labels.length != size)
+            throw new IllegalArgumentException("Expected " + size + " labels, got " + labels.length + ".");
+
+        this.size = size;
+        this.distances = new double[size * size];
+        this.labels = labels;
+
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < size; i++)
+            distances[i * size + i] = 0.0;
+    }
+
+    /**
+     * Adapter from the object graph. Vertexes keep their graph indexes and their IDs are kept as labels.
+     *
+     * @param graph source graph
+     * @return New matrix with a copy of all <code>graph</code>'s edge weights.
+     */
+    public static <T extends Number> DistanceMatrix of(Graph<T> graph) {
+        String[] labels = new String[graph.getNumberVertexes()];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = graph.getVertex(i).getID();
+
+        int n = labels.length;
+        DistanceMatrix matrix = new DistanceMatrix(n, labels);
+
+        for (Edge<T> e : graph.getEdges()) {
+            int v1 = e.getV1().getIndex();
+            int v2 = e.getV2().getIndex();
+            matrix.distances[v1 * n + v2] = e.getDistance();
+            matrix.distances[v2 * n + v1] = e.getDistance();
+        }
+
+        matrix.recountEdges();
+        return matrix;
+    }
+
+    /**
+     * @param graph any graph
+     * @return New matrix with all distances and labels of <code>graph</code>.
+     */
+    public static DistanceMatrix copyOf(DistanceGraph graph) {
+        if (graph instanceof Graph)
+            return of((Graph<?>) graph);
+
+        int n = graph.getNumberVertexes();
+        String[] labels = new String[n];
+        for (int i = 0; i < n; i++)
+            labels[i] = graph.getLabel(i);
+
+        DistanceMatrix matrix = new DistanceMatrix(n, labels);
+        if (graph instanceof DistanceMatrix)
+            System.arraycopy(((DistanceMatrix) graph).distances, 0, matrix.distances, 0, n * n);
+        else
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    matrix.distances[i * n + j] = graph.getDistance(i, j);
+
+        matrix.recountEdges();
+        return matrix;
+    }
+
+    @Override
+    public int getNumberVertexes() {
+        return size;
+    }
+
+    @Override
+    public double getDistance(int v1, int v2) {
+        return distances[v1 * size + v2];
+    }
+
+    public void setDistance(int v1, int v2, double distance) {
+        if (v1 != v2) {
+            if (distances[v1 * size + v2] == Double.POSITIVE_INFINITY)
+                edgesAmount++;
+            if (distance == Double.POSITIVE_INFINITY)
+                edgesAmount--;
+        }
+
+        distances[v1 * size + v2] = distance;
+        distances[v2 * size + v1] = distance;
+        edgeIndex = null;
+    }
+
+    /**
+     * @return Backing row-major array, for engines (like <code>MetricClosure</code>) working on it directly.
+     */
+    double[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Recounts connected pairs and drops the edge index, after <code>getDistances()</code> array was modified
+     * directly.
+     */
+    void recountEdges() {
+        edgeIndex = null;
+        edgesAmount = 0;
+        for (int i = 0; i < size - 1; i++)
+            for (int j = i + 1; j < size; j++)
+                if (distances[i * size + j] != Double.POSITIVE_INFINITY)
+                    edgesAmount++;
+    }
+
+    /**
+     * @return Number of pairs connected with finite distance.
+     */
+    public long getNumberEdges() {
+        return edgesAmount;
+    }
+
+    /**
+     * @return Edges sorted by distance, built on first call and kept until the matrix is modified.
+     */
+    public EdgeIndex getEdgeIndex() {
+        EdgeIndex index = edgeIndex;
+        if (index == null)
+            edgeIndex = index = EdgeIndex.build(this);
+
+        return index;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return edgesAmount == (long) size * (size - 1) / 2;
+    }
+
+    @Override
+    public String getLabel(int v) {
+        return labels != null ? labels[v] : DistanceGraph.super.getLabel(v);
+    }
+}
@@ -5,24 +5,53 @@ import com.fjps.main.graph.exceptions.WeightTypeNotSupported;
 /**
  * Class representing edge connecting two vertexes.
  * <p>
+ * Besides the boxed weight, edge keeps its primitive values - <code>getDistance()</code> and, for
+ * <code>Integer</code> and <code>Long</code> weights, exact <code>getLongWeight()</code> - so that comparisons and
+ * sums neither unbox nor check the weight type on every call.
+ * <p>
  * Created by MagnaT on 24/03/16.
  */
 public class Edge<T extends Number> implements Comparable<Edge> {
 
     private T weight;
+    private double distance;
+    private long longWeight;
+    private boolean integral;
     private final Vertex<T> v1;
     private final Vertex<T> v2;
 
-    public Edge(Vertex<T> v1, Vertex<T> v2, T weight) {
-        this.weight = weight;
+    public Edge(Vertex<T> v1, Vertex<T> v2, T weight) throws WeightTypeNotSupported {
         this.v1 = v1;
         this.v2 = v2;
+        updateWeight(weight);
     }
 
     public T getWeight() {
         return weight;
     }
 
+    /**
+     * @return Weight as <code>double</code>, unboxed once when the weight was set.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Weight as <code>long</code> - exact for integral weights, truncated <code>double</code> otherwise.
+     */
+    public long getLongWeight() {
+        return longWeight;
+    }
+
+    /**
+     * @return <code>true</code> for <code>Integer</code> and <code>Long</code> weights, which are compared
+     * exactly as <code>long</code>s, even beyond <code>2^53</code>.
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
     public Vertex<T> getV1() {
         return v1;
     }
@@ -75,18 +104,11 @@ public class Edge<T extends Number> implements Comparable<Edge> {
         return result;
     }
 
-    private int compareWeights(Edge e) throws WeightTypeNotSupported {
-        if (weight instanceof Integer)
-            return weight.intValue() - e.getWeight().intValue();
-        if (weight instanceof Long) {
-            long thisWeight = weight.longValue();
-            long otherWeight = e.getWeight().longValue();
-            return thisWeight > otherWeight ? 1 : (thisWeight < otherWeight ? -1 : 0);
-        }
-        if (weight instanceof Double)
-            return (int) (weight.doubleValue() - e.getWeight().doubleValue());
-
-        throw new WeightTypeNotSupported("Type is not supported: " + e.getWeight().getClass() + ".");
+    private int compareWeights(Edge e) {
+        if (integral && e.integral)
+            return Long.compare(longWeight, e.longWeight);
+
+        return Double.compare(distance, e.distance);
     }
 
     private int compareVertexes(Edge e) {
@@ -101,8 +123,14 @@ public class Edge<T extends Number> implements Comparable<Edge> {
         return v2.getID().compareTo(e.getV2().getID());
     }
 
-    public void updateWeight(T newWeight)
+    public void updateWeight(T newWeight) throws WeightTypeNotSupported
     {
+        if (!(newWeight instanceof Integer) && !(newWeight instanceof Long) && !(newWeight instanceof Double))
+            throw new WeightTypeNotSupported("Type is not supported: " + newWeight.getClass() + ".");
+
         this.weight = newWeight;
+        this.distance = newWeight.doubleValue();
+        this.longWeight = newWeight.longValue();
+        this.integral = !(newWeight instanceof Double);
     }
 }
@@ -0,0 +1,187 @@
+package com.fjps.main.graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * All finite edges of a graph sorted by distance, in parallel primitive arrays - edge <code>e</code> connects
+ * <code>getV1(e) &lt; getV2(e)</code> at <code>getDistance(e)</code>. Meant for Kruskal's algorithm and other
+ * greedy heuristics taking edges from the shortest one.
+ * <p>
+ * Distances are sorted by parallel LSD radix sort of their IEEE 754 bits, flipped so that unsigned order of keys is
+ * the order of <code>double</code>s: 8 passes of 8 bits, skipping passes in which all keys share the digit (e.g.
+ * sign and exponent of similar distances). Every pass counts digits of array chunks in parallel and then scatters
+ * chunks in parallel; it is stable, so equal distances keep the order of enumeration - rows by <code>v1</code>.
+ * <p>
+ * <code>Graph</code> and <code>DistanceMatrix</code> keep their index until they are modified - use
+ * <code>of()</code> to get the cached one.
+ */
+public final class EdgeIndex {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int CHUNK = 1 << 16;
+
+    private final int[] v1;
+    private final int[] v2;
+    private final double[] distances;
+
+    private EdgeIndex(int[] v1, int[] v2, double[] distances) {
+        this.v1 = v1;
+        this.v2 = v2;
+        this.distances = distances;
+    }
+
+    /**
+     * @param graph any graph
+     * @return Index of <code>graph</code> - cached one for <code>Graph</code> and <code>DistanceMatrix</code>.
+     */
+    public static EdgeIndex of(DistanceGraph graph) {
+        if (graph instanceof Graph)
+            return ((Graph<?>) graph).getEdgeIndex();
+        if (graph instanceof DistanceMatrix)
+            return ((DistanceMatrix) graph).getEdgeIndex();
+
+        return build(graph);
+    }
+
+    /**
+     * Enumerates edges, row by row through <code>forEachNeighbour()</code>, and sorts them.
+     */
+    static EdgeIndex build(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+
+        long[] count = new long[1];
+        for (int i = 0; i < n; i++) {
+            int from = i;
+            graph.forEachNeighbour(i, (j, distance) -> {
+                if (from < j)
+                    count[0]++;
+            });
+        }
+        if (count[0] > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges to be indexed: " + count[0] + ".");
+
+        int m = (int) count[0];
+        int[] ends1 = new int[m];
+        int[] ends2 = new int[m];
+        double[] weights = new double[m];
+        int[] size = new int[1];
+
+        for (int i = 0; i < n; i++) {
+            int from = i;
+            graph.forEachNeighbour(i, (j, distance) -> {
+                if (from < j) {
+                    ends1[size[0]] = from;
+                    ends2[size[0]] = j;
+                    weights[size[0]++] = distance;
+                }
+            });
+        }
+
+        int[] order = sort(weights);
+
+        int[] v1 = new int[m];
+        int[] v2 = new int[m];
+        double[] distances = new double[m];
+        IntStream.range(0, m).parallel().forEach(k -> {
+            v1[k] = ends1[order[k]];
+            v2[k] = ends2[order[k]];
+            distances[k] = weights[order[k]];
+        });
+
+        return new EdgeIndex(v1, v2, distances);
+    }
+
+    public int size() {
+        return distances.length;
+    }
+
+    public int getV1(int e) {
+        return v1[e];
+    }
+
+    public int getV2(int e) {
+        return v2[e];
+    }
+
+    public double getDistance(int e) {
+        return distances[e];
+    }
+
+    /**
+     * @param weights finite, not modified
+     * @return Positions of <code>weights</code> in ascending order, equal ones in order of positions.
+     */
+    static int[] sort(double[] weights) {
+        int m = weights.length;
+        long[] keys = new long[m];
+        int[] order = new int[m];
+        long[] initialKeys = keys;
+        int[] initialOrder = order;
+        IntStream.range(0, m).parallel().forEach(k -> {
+            long bits = Double.doubleToLongBits(weights[k]);
+            initialKeys[k] = bits ^ (bits >> 63 | Long.MIN_VALUE);
+            initialOrder[k] = k;
+        });
+
+        long[] keysBuffer = new long[m];
+        int[] orderBuffer = new int[m];
+        int chunks = Math.max(1, Math.min((m + CHUNK - 1) / CHUNK, 4 * ForkJoinPool.getCommonPoolParallelism()));
+        int chunkSize = (m + chunks - 1) / chunks;
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            int digitShift = shift;
+            long[] source = keys;
+            int[][] counts = new int[chunks][];
+
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] count = new int[RADIX];
+                for (int k = c * chunkSize, end = Math.min(m, k + chunkSize); k < end; k++)
+                    count[(int) (source[k] >>> digitShift) & (RADIX - 1)]++;
+                counts[c] = count;
+            });
+
+            // starts of digits, chunk by chunk within each digit - keeps the pass stable
+            int start = 0;
+            boolean trivial = false;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int total = 0;
+                for (int c = 0; c < chunks; c++) {
+                    int count = counts[c][digit];
+                    counts[c][digit] = start + total;
+                    total += count;
+                }
+                trivial |= total == m;
+                start += total;
+            }
+            if (trivial)
+                continue;
+
+            long[] targetKeys = keysBuffer;
+            int[] sourceOrder = order;
+            int[] targetOrder = orderBuffer;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] next = counts[c];
+                for (int k = c * chunkSize, end = Math.min(m, k + chunkSize); k < end; k++) {
+                    int position = next[(int) (source[k] >>> digitShift) & (RADIX - 1)]++;
+                    targetKeys[position] = source[k];
+                    targetOrder[position] = sourceOrder[k];
+                }
+            });
+
+            keysBuffer = keys;
+            keys = targetKeys;
+            orderBuffer = order;
+            order = targetOrder;
+        }
+
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return "EdgeIndex{" + size() + " edges" + (size() > 0 ? ", " + distances[0] + " .. "
+                + distances[size() - 1] : "") + "}";
+    }
+}
@@ -2,8 +2,6 @@ package com.fjps.main.graph;
 
 import com.fjps.main.graph.exceptions.NoVerticesException;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -14,23 +12,18 @@ public class Generator
     private static int iterator = 0;
 
     private Graph<Double> g;
-    private List<Vertex<Double>> verticles;
     private final int graphSize;
 
     public Generator(int graphSize)
     {
         g = new Graph();
-        verticles = new LinkedList<>();
         this.graphSize = graphSize;
     }
 
     public void generateVertices()
     {
         for (int i = 0; i < graphSize; ++i)
-        {
-            Vertex<Double> vertex = g.addVertex();
-            verticles.add(vertex);
-        }
+            g.addVertex();
     }
 
     public void generateEdges()  throws NoVerticesException
@@ -43,7 +36,7 @@ public class Generator
             for (int i = 0; i < graphSize-1; ++i)
                 for (int j = i+1; j < graphSize; ++j)
                 {
-                    g.connect(verticles.get(i), verticles.get(j), (rand.nextDouble()*rand.nextInt(50)) + rand.nextDouble());
+                    g.connect(g.getVertex(i), g.getVertex(j), (rand.nextDouble()*rand.nextInt(50)) + rand.nextDouble());
                     iterator++;
                 }
         }
@@ -4,6 +4,7 @@ import com.fjps.main.graph.exceptions.InvalidVertexIDException;
 import com.fjps.main.graph.exceptions.NoSuchVertexException;
 import com.fjps.main.graph.exceptions.NoVerticesException;
 import com.fjps.main.graph.exceptions.VertexDuplicateException;
+import com.fjps.main.graph.exceptions.WeightTypeNotSupported;
 
 import java.util.*;
 
@@ -13,38 +14,45 @@ import java.util.*;
  * <p>
  * Every vertex has its own, unique id.
  * It can be managed from the <code>Graph</code> object by id or by <code>Vertex</code> object itself.
+ * Additionally vertexes are kept in dense order - <code>getVertex(int)</code> works in constant time and
+ * indexes <code>0 .. n-1</code> are what solvers (and <code>DistanceMatrix</code>) use.
+ * <p>
+ * Graph is a <code>DistanceGraph</code> itself - missing edges are infinitely long and neighbours are iterated
+ * straight from adjacency, so sparse graphs can be searched (e.g. by <code>Dijkstra</code>) without a matrix copy.
  * <p>
  * Created by Patryk Stopyra on 17/03/16.
  */
-public class Graph<T extends Number> {
+public class Graph<T extends Number> implements DistanceGraph {
 
     private final HashMap<String, Vertex<T>> vertexes;
-    private final TreeSet<Edge<T>> edges; //sth about edge.equals may occur problematic, but should not!
+    private final ArrayList<Vertex<T>> indexedVertexes;
+    private final Set<Edge<T>> edges; // by identity - weights of edges change
+    private int nextOrderNumber;
+    private volatile EdgeIndex edgeIndex;
 
     public Graph() {
         vertexes = new HashMap<>();
-        edges = new TreeSet<>();
+        indexedVertexes = new ArrayList<>();
+        edges = Collections.newSetFromMap(new IdentityHashMap<>());
 
     }
 
     public Graph(int vertexAmount)
     {
         vertexes = new HashMap<>();
-        edges = new TreeSet<>();
+        indexedVertexes = new ArrayList<>(vertexAmount);
+        edges = Collections.newSetFromMap(new IdentityHashMap<>());
         for (int i = 0; i < vertexAmount; ++i)
             addVertex();
     }
 
     public Vertex<T> addVertex() {
-        Vertex<T> v;
-        int diff = 0;
+        Vertex<T> v = new Vertex<>(nextOrderNumber++);
 
-        do {
-            v = new Vertex<>(vertexes.size() + diff++);
-        } while (vertexes.containsKey(v.getID()));
+        while (vertexes.containsKey(v.getID())) // only when such ID was given explicitly
+            v = new Vertex<>(nextOrderNumber++);
 
-        vertexes.put(v.getID(), v);
-        return v;
+        return register(v);
     }
 
     public Vertex<T> addVertex(String id) throws InvalidVertexIDException, VertexDuplicateException {
@@ -53,9 +61,13 @@ public class Graph<T extends Number> {
         if (vertexes.containsKey(id))
             throw new VertexDuplicateException(id);
 
-        Vertex<T> v = new Vertex<>(id);
+        return register(new Vertex<>(id));
+    }
 
-        vertexes.put(id, v);
+    private Vertex<T> register(Vertex<T> v) {
+        v.setIndex(indexedVertexes.size());
+        indexedVertexes.add(v);
+        vertexes.put(v.getID(), v);
         return v;
     }
 
@@ -66,8 +78,14 @@ public class Graph<T extends Number> {
         v = vertexes.get(v.getID()); // to ensure that v is a vertex from a graph, not an alien clone
 
         for (Vertex<T> neighbour : new HashSet<>(v.getNeighbourhood().keySet()))
-            neighbour.removeConnectionTo(v);
+            edges.remove(neighbour.removeConnectionTo(v));
+        edgeIndex = null;
         vertexes.remove(v.getID());
+
+        indexedVertexes.remove(v.getIndex());
+        for (int i = v.getIndex(); i < indexedVertexes.size(); i++)
+            indexedVertexes.get(i).setIndex(i);
+        v.setIndex(-1);
     }
 
     public void removeVertex(String id) throws NoSuchVertexException {
@@ -92,18 +110,82 @@ public class Graph<T extends Number> {
         return vertexes.get(id);
     }
 
+    /**
+     * @param index dense index of vertex, <code>0 .. getNumberVertexes()-1</code>
+     * @return Vertex of given index.
+     */
+    public Vertex<T> getVertex(int index) {
+        return indexedVertexes.get(index);
+    }
+
+    /**
+     * @return All vertexes ordered by their indexes.
+     */
     public List<Vertex<T>> getAllVertexes() {
-        return new LinkedList<>(vertexes.values());
+        return new ArrayList<>(indexedVertexes);
     }
 
+    @Override
     public int getNumberVertexes() {
         return vertexes.size();
     }
 
+    @Override
+    public double getDistance(int v1, int v2) {
+        if (v1 == v2)
+            return 0.0;
+
+        Edge<T> edge = indexedVertexes.get(v1).getNeighbourhood().get(indexedVertexes.get(v2));
+        return edge == null ? Double.POSITIVE_INFINITY : edge.getDistance();
+    }
+
+    @Override
+    public void forEachNeighbour(int v, NeighbourConsumer consumer) {
+        Vertex<T> vertex = indexedVertexes.get(v);
+
+        for (Map.Entry<Vertex, Edge<T>> neighbour : vertex.getNeighbourhood().entrySet())
+            consumer.accept(neighbour.getKey().getIndex(), neighbour.getValue().getDistance());
+    }
+
+    @Override
+    public boolean isComplete() {
+        long n = vertexes.size();
+        return edges.size() == n * (n - 1) / 2;
+    }
+
+    @Override
+    public String getLabel(int v) {
+        return indexedVertexes.get(v).getID();
+    }
+
+    /**
+     * @return New set of all edges ordered by weight - sorted on every call; see <code>getEdgeIndex()</code>.
+     */
     public TreeSet<Edge<T>> getAllEdges() {
         return new TreeSet<>(edges);
     }
 
+    /**
+     * @return Unmodifiable view of edges, in no particular order - for adapters of this package, without sorting.
+     */
+    Set<Edge<T>> getEdges() {
+        return Collections.unmodifiableSet(edges);
+    }
+
+    /**
+     * Sorted index of edges, built on first call and kept until the graph is modified by its methods. Changing
+     * weight of an edge directly (<code>Edge.updateWeight()</code>) does not drop the index.
+     *
+     * @return Edges sorted by distance, between vertex indexes.
+     */
+    public EdgeIndex getEdgeIndex() {
+        EdgeIndex index = edgeIndex;
+        if (index == null)
+            edgeIndex = index = EdgeIndex.build(this);
+
+        return index;
+    }
+
     public int getNumberEdges() {
         return edges.size();
     }
@@ -129,8 +211,13 @@ public class Graph<T extends Number> {
         v1 = vertexes.get(v1.getID());
         v2 = vertexes.get(v2.getID());
 
+        Edge<T> replacedEdge = v1.hasDirectConnection(v2) ? v1.getEdge(v2) : null;
         Edge<T> newEdge = v1.addConnectionTo(v2, distance);
+        if (replacedEdge != null)
+            edges.remove(replacedEdge); // replaced edge must not stay in edges set
+
         edges.add(newEdge);
+        edgeIndex = null;
     }
 
     public void disconnect(Vertex<T> v1, Vertex<T> v2) throws NoSuchVertexException {
@@ -144,31 +231,70 @@ public class Graph<T extends Number> {
 
         Edge<T> removedEdge = v1.removeConnectionTo(v2);
         edges.remove(removedEdge);
+        edgeIndex = null;
     }
 
     /**
      * Assures metric of all nodes connections. Should be invoked after all vertexes and connections
      * for TSP counting are already added.
+     * <p>
+     * Shortest paths are computed by <code>MetricClosure</code> on a <code>DistanceMatrix</code> copy, only from
+     * vertexes violating triangle inequality, and every existing edge gets the length of the shortest path between
+     * its ends. Graph which already is metric is left untouched.
      */
     public void assureMetric() {
-        for (Vertex v: getAllVertexes())
-        {
-            Dijkstra.computePaths(v);
-            for (Object e : v.getNeighbourhood().values())
-            {
-                if(((Edge)(e)).getV2() != v)
-                    ((Edge)(e)).updateWeight(((Edge)(e)).getV2().getMinDistance());
-                if(((Edge)(e)).getV1() != v)
-                    ((Edge)(e)).updateWeight(((Edge)(e)).getV1().getMinDistance());
-            }
-            resetRound();
+        DistanceMatrix closure = DistanceMatrix.of(this);
+        if (MetricClosure.repair(closure) != 0)
+            assureMetric(closure);
+    }
+
+    /**
+     * Variant of <code>assureMetric()</code> taking already computed closure (e.g. a cached one) - every edge gets
+     * its distance from <code>closure</code>, if that one is shorter.
+     *
+     * @param closure shortest paths lengths between vertexes of this graph, addressed by their indexes
+     */
+    public void assureMetric(DistanceGraph closure) {
+        if (closure.getNumberVertexes() != getNumberVertexes())
+            throw new IllegalArgumentException("Closure of " + closure.getNumberVertexes()
+                    + " vertexes does not fit graph of " + getNumberVertexes() + ".");
+
+        for (Edge<T> e : edges) {
+            double distance = closure.getDistance(e.getV1().getIndex(), e.getV2().getIndex());
+            if (distance < e.getDistance())
+                e.updateWeight(sameTypeWeight(distance, e.getWeight()));
         }
+        edgeIndex = null;
     }
 
-    private void resetRound()
-    {
-        for (Vertex v : getAllVertexes())
-            v.setMinDistance(Double.POSITIVE_INFINITY);
+    /**
+     * @return <code>true</code> if graph is complete and all its edges satisfy triangle inequality.
+     */
+    public boolean isMetric() {
+        return MetricClosure.isMetric(DistanceMatrix.of(this));
+    }
+
+    /**
+     * Sampled version of <code>isMetric()</code> - see <code>MetricClosure.isProbablyMetric()</code>.
+     *
+     * @param violatingFraction largest accepted fraction of violating triples
+     * @param confidence        probability that the fraction is not exceeded when <code>true</code> is returned
+     * @return <code>false</code> if violation was found, <code>true</code> otherwise.
+     */
+    public boolean isMetric(double violatingFraction, double confidence) {
+        return MetricClosure.isProbablyMetric(DistanceMatrix.of(this), violatingFraction, confidence);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T sameTypeWeight(double weight, T sample) throws WeightTypeNotSupported {
+        if (sample instanceof Double)
+            return (T) Double.valueOf(weight);
+        if (sample instanceof Long)
+            return (T) Long.valueOf(Math.round(weight));
+        if (sample instanceof Integer)
+            return (T) Integer.valueOf((int) Math.round(weight));
+
+        throw new WeightTypeNotSupported("Type is not supported: " + sample.getClass() + ".");
     }
 
     @Override
@@ -176,11 +302,11 @@ public class Graph<T extends Number> {
         StringBuilder builder = new StringBuilder("Graph object containing:\n");
 
         if (vertexes.size() <= 16)
-            vertexes.values().stream()
+            indexedVertexes.stream()
                     .forEach(v -> builder.append(v).append("\n"));
         else
-            vertexes.keySet().stream()
-                    .forEach(id -> builder.append(" ").append(id));
+            indexedVertexes.stream()
+                    .forEach(v -> builder.append(" ").append(v.getID()));
 
 
         return builder.toString();
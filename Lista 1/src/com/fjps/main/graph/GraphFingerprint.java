@@ -0,0 +1,122 @@
+package com.fjps.main.graph;
+
+import java.util.stream.IntStream;
+
+/**
+ * 128-bit content hash of a graph - number of vertexes and distances of all (unordered) pairs, in index order.
+ * <p>
+ * Two graphs with equal distances have equal fingerprints, whatever their representation
+ * (<code>Graph</code>, <code>DistanceMatrix</code>, ...) or labels - solvers see only indexes and distances, so
+ * anything computed for one of them is valid for the other. Hash is not cryptographic, but accidental collision
+ * of two 64-bit lanes at once is unlikely enough to use fingerprint as a cache key alone.
+ * <p>
+ * Each row of the upper triangle is hashed in two independent lanes (multiply-rotate rounds over distance bits,
+ * as in xxHash), rows of big graphs in parallel; row hashes are then combined in order. Computing it is
+ * <code>O(n^2)</code>, about as much as reading the graph once.
+ */
+public final class GraphFingerprint {
+
+    /**
+     * Smallest graph whose rows are hashed in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 256;
+
+    private static final long PRIME_1 = 0x9E3779B97F4A7C15L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long SEED_1 = 0x165667B19E3779F9L;
+    private static final long SEED_2 = 0x27D4EB2F165667C5L;
+
+    private final int size;
+    private final long high;
+    private final long low;
+
+    private GraphFingerprint(int size, long high, long low) {
+        this.size = size;
+        this.high = high;
+        this.low = low;
+    }
+
+    public static GraphFingerprint of(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        long[] rows = new long[2 * n];
+
+        IntStream indexes = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD)
+            indexes = indexes.parallel();
+
+        if (graph instanceof DistanceMatrix) {
+            double[] distances = ((DistanceMatrix) graph).getDistances();
+            indexes.forEach(i -> hashRow(rows, i, distances, i * n, n));
+        } else
+            indexes.forEach(i -> {
+                double[] row = new double[n];
+                for (int j = i + 1; j < n; j++)
+                    row[j] = graph.getDistance(i, j);
+                hashRow(rows, i, row, 0, n);
+            });
+
+        long high = SEED_1 ^ n;
+        long low = SEED_2 ^ n;
+        for (int i = 0; i < n; i++) {
+            high = Long.rotateLeft(high ^ rows[2 * i], 29) * PRIME_1;
+            low = Long.rotateLeft(low ^ rows[2 * i + 1], 31) * PRIME_2;
+        }
+
+        return new GraphFingerprint(n, mix(high ^ low >>> 32), mix(low ^ high));
+    }
+
+    /**
+     * Hashes distances <code>(i, i+1) .. (i, n-1)</code>, kept in <code>row</code> from <code>offset</code> on.
+     */
+    private static void hashRow(long[] rows, int i, double[] row, int offset, int n) {
+        long high = SEED_1 + i;
+        long low = SEED_2 - i;
+
+        for (int j = offset + i + 1; j < offset + n; j++) {
+            long bits = row[j] == 0.0 ? 0L : Double.doubleToLongBits(row[j]); // -0.0 equals 0.0
+            high = Long.rotateLeft(high + bits * PRIME_2, 31) * PRIME_1;
+            low = Long.rotateLeft(low ^ bits * PRIME_1, 27) * PRIME_2;
+        }
+
+        rows[2 * i] = high;
+        rows[2 * i + 1] = low;
+    }
+
+    /**
+     * Finalizer of MurmurHash3 - every input bit affects every output bit.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    public int getNumberVertexes() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof GraphFingerprint))
+            return false;
+
+        GraphFingerprint other = (GraphFingerprint) o;
+        return size == other.size && high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ low >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d:%016x%016x", size, high, low);
+    }
+}
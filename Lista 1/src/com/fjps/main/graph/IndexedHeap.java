@@ -0,0 +1,130 @@
+package com.fjps.main.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min-heap of items <code>0 .. capacity-1</code> with primitive <code>double</code> keys.
+ * <p>
+ * Position of every item in the heap is tracked, so <code>contains()</code> is <code>O(1)</code> and
+ * <code>decreaseKey()</code> is a true <code>O(log_d n)</code> sift-up instead of remove and insert.
+ * Wider heaps (<code>d = 4</code>) are shallower and keep children of a node in one cache line.
+ */
+public class IndexedHeap {
+
+    private final int arity;
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size;
+
+    public IndexedHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Heap arity has to be at least 2, got " + arity + ".");
+
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new double[capacity];
+
+        Arrays.fill(positions, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    public double getKey(int item) {
+        return keys[item];
+    }
+
+    public void insert(int item, double key) {
+        if (contains(item))
+            throw new IllegalArgumentException("Item " + item + " is already in heap.");
+
+        keys[item] = key;
+        heap[size] = item;
+        positions[item] = size;
+        siftUp(size++);
+    }
+
+    public void decreaseKey(int item, double key) {
+        if (!contains(item) || key > keys[item])
+            throw new IllegalArgumentException("Cannot decrease key of item " + item + " to " + key + ".");
+
+        keys[item] = key;
+        siftUp(positions[item]);
+    }
+
+    /**
+     * @return Item of minimal key, removed from heap.
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty.");
+
+        int min = heap[0];
+        positions[min] = -1;
+
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    private void siftUp(int position) {
+        int item = heap[position];
+        double key = keys[item];
+
+        while (position > 0) {
+            int parent = (position - 1) / arity;
+            if (keys[heap[parent]] <= key)
+                break;
+
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        int item = heap[position];
+        double key = keys[item];
+
+        while (true) {
+            int first = position * arity + 1;
+            if (first >= size)
+                break;
+
+            int min = first;
+            int last = Math.min(first + arity, size);
+            for (int child = first + 1; child < last; child++)
+                if (keys[heap[child]] < keys[heap[min]])
+                    min = child;
+
+            if (keys[heap[min]] >= key)
+                break;
+
+            heap[position] = heap[min];
+            positions[heap[position]] = position;
+            position = min;
+        }
+
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
@@ -0,0 +1,328 @@
+package com.fjps.main.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Metric closure engine - replaces every distance with length of the shortest path between its ends.
+ * <p>
+ * Most instances already satisfy triangle inequality, so <code>repair()</code> first looks for vertexes whose
+ * row violates it and recomputes shortest paths from these vertexes only. Full closure is computed by
+ * <code>floydWarshall()</code>.
+ * <p>
+ * Implemented as cache-blocked Floyd-Warshall on the flat matrix of <code>DistanceMatrix</code>. The matrix is
+ * split into <code>BLOCK x BLOCK</code> tiles; for every diagonal tile <code>k</code>:<br>
+ * 1. tile <code>(k, k)</code> is closed on its own,<br>
+ * 2. tiles of row <code>k</code> and column <code>k</code> are updated in parallel,<br>
+ * 3. all remaining tiles are updated in parallel.<br>
+ * Parallel phases run on the common fork-join pool.
+ */
+public final class MetricClosure {
+
+    /**
+     * Tile edge - three tiles of doubles (96 KB) fit in L2 cache.
+     */
+    public static final int BLOCK = 64;
+
+    /**
+     * Relative tolerance of triangle inequality, covers rounding of sums.
+     */
+    public static final double TOLERANCE = 1e-12;
+
+    private MetricClosure() {
+    }
+
+    /**
+     * Checks triangle inequality for all triples, rows in parallel. Stops on the first violation found.
+     * Missing connection counts as violation, as metric has to define all distances.
+     *
+     * @param matrix distances to be checked
+     * @return <code>true</code> if <code>matrix</code> is a metric.
+     */
+    public static boolean isMetric(DistanceMatrix matrix) {
+        if (!matrix.isComplete())
+            return false;
+
+        double[] distances = matrix.getDistances();
+        int n = matrix.getNumberVertexes();
+
+        return IntStream.range(0, n).parallel()
+                .noneMatch(i -> violatesRow(distances, n, i));
+    }
+
+    /**
+     * Checks triangle inequality on random triples only. If no violation is found, fraction of violating triples
+     * is below <code>violatingFraction</code> with given <code>confidence</code>. It needs
+     * <code>ln(1 - confidence) / ln(1 - violatingFraction)</code> samples, independent of graph size.
+     * Missing connection counts as violation, as in <code>isMetric()</code>.
+     *
+     * @param matrix            distances to be checked
+     * @param violatingFraction largest accepted fraction of violating triples, <code>(0, 1)</code>
+     * @param confidence        probability of the bound, <code>(0, 1)</code>
+     * @return <code>false</code> if violating triple was found, <code>true</code> otherwise.
+     */
+    public static boolean isProbablyMetric(DistanceMatrix matrix, double violatingFraction, double confidence) {
+        if (violatingFraction <= 0.0 || violatingFraction >= 1.0 || confidence <= 0.0 || confidence >= 1.0)
+            throw new IllegalArgumentException("Fraction and confidence have to be in (0, 1).");
+        if (!matrix.isComplete())
+            return false;
+
+        double[] distances = matrix.getDistances();
+        int n = matrix.getNumberVertexes();
+        if (n < 3)
+            return isMetric(matrix);
+
+        long samples = (long) Math.ceil(Math.log(1.0 - confidence) / Math.log(1.0 - violatingFraction));
+
+        return LongStream.range(0, samples).parallel()
+                .noneMatch(sample -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int i = random.nextInt(n);
+                    int j = random.nextInt(n);
+                    int k = random.nextInt(n);
+                    return distances[i * n + j] > (distances[i * n + k] + distances[k * n + j]) * (1.0 + TOLERANCE);
+                });
+    }
+
+    /**
+     * Closes the metric, recomputing shortest paths only from vertexes whose rows violate triangle inequality.
+     * <p>
+     * It is enough for symmetric matrices: if some distance <code>d(a, b)</code> is longer than the shortest path
+     * <code>a = x0, x1, ..., xm = b</code>, take the last <code>x(i)</code> with <code>d(x(i), b)</code> too long.
+     * Then <code>d(b, x(i)) &gt; d(b, x(i+1)) + d(x(i+1), x(i))</code>, so the row of <code>b</code> (and likewise
+     * of <code>a</code>) violates triangle inequality.
+     *
+     * @param matrix distances to be closed in place
+     * @return Number of repaired vertexes; <code>0</code> means <code>matrix</code> already was a metric.
+     */
+    public static int repair(DistanceMatrix matrix) {
+        double[] distances = matrix.getDistances();
+        int n = matrix.getNumberVertexes();
+
+        int[] violating = IntStream.range(0, n).parallel()
+                .filter(i -> violatesRow(distances, n, i))
+                .toArray();
+
+        if (violating.length == 0)
+            return 0;
+
+        if (violating.length > n / 2) {
+            floydWarshall(matrix);
+            return violating.length;
+        }
+
+        int batch = 8 * Runtime.getRuntime().availableProcessors();
+        for (int from = 0; from < violating.length; from += batch) {
+            int to = Math.min(violating.length, from + batch);
+
+            // every row is computed against consistent matrix, then all are written back
+            double[][] rows = IntStream.range(from, to).parallel()
+                    .mapToObj(v -> shortestPaths(distances, n, violating[v]))
+                    .toArray(double[][]::new);
+
+            for (int v = from; v < to; v++) {
+                int source = violating[v];
+                double[] row = rows[v - from];
+
+                for (int j = 0; j < n; j++)
+                    if (row[j] < distances[source * n + j])
+                        distances[source * n + j] = distances[j * n + source] = row[j];
+            }
+        }
+
+        matrix.recountEdges();
+        return violating.length;
+    }
+
+    /**
+     * @param graph any graph
+     * @return New matrix of shortest paths lengths, labelled as <code>graph</code> - complete graphs are copied and
+     * repaired, sparse ones go through <code>allPairs()</code>.
+     */
+    public static DistanceMatrix of(DistanceGraph graph) {
+        if (!graph.isComplete())
+            return allPairs(graph);
+
+        DistanceMatrix closure = DistanceMatrix.copyOf(graph);
+        repair(closure);
+        return closure;
+    }
+
+    /**
+     * Metric closure of a possibly sparse graph - heap Dijkstra from every vertex, sources processed in parallel.
+     * All searches share one read-only graph, which must not be modified meanwhile.
+     *
+     * @return New matrix of shortest paths lengths, labelled as <code>graph</code>.
+     */
+    public static DistanceMatrix allPairs(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        String[] labels = new String[n];
+        for (int i = 0; i < n; i++)
+            labels[i] = graph.getLabel(i);
+
+        DistanceMatrix closure = new DistanceMatrix(n, labels);
+        double[] distances = closure.getDistances();
+        Dijkstra dijkstra = new Dijkstra(graph);
+
+        IntStream.range(0, n).parallel().forEach(source -> {
+            Dijkstra.Paths paths = dijkstra.computePaths(source);
+            for (int j = 0; j < n; j++)
+                distances[source * n + j] = paths.getDistance(j);
+        });
+
+        closure.recountEdges();
+        return closure;
+    }
+
+    /**
+     * Metric closure restricted to TSP stops of a big sparse graph (e.g. <code>SparseGraph</code> of a road
+     * network) - Dijkstra from every stop, each one stopped once all stops are reached, sources processed in
+     * parallel. Vertexes which are not stops are only passed through, so the result has <code>k x k</code> entries
+     * however big the network is.
+     *
+     * @param graph network, must not be modified meanwhile
+     * @param stops indexes of stops in <code>graph</code>
+     * @return New matrix of shortest paths lengths between stops, vertex <code>i</code> being <code>stops[i]</code>
+     * and labelled as that one.
+     */
+    public static DistanceMatrix between(DistanceGraph graph, int[] stops) {
+        int k = stops.length;
+        String[] labels = new String[k];
+        for (int i = 0; i < k; i++)
+            labels[i] = graph.getLabel(stops[i]);
+
+        DistanceMatrix closure = new DistanceMatrix(k, labels);
+        double[] distances = closure.getDistances();
+        Dijkstra dijkstra = new Dijkstra(graph);
+
+        IntStream.range(0, k).parallel().forEach(i -> {
+            Dijkstra.Paths paths = dijkstra.computePaths(stops[i], stops);
+            for (int j = 0; j < k; j++)
+                distances[i * k + j] = paths.getDistance(stops[j]);
+        });
+
+        closure.recountEdges();
+        return closure;
+    }
+
+    public static void floydWarshall(DistanceMatrix matrix) {
+        floydWarshall(matrix.getDistances(), matrix.getNumberVertexes());
+        matrix.recountEdges();
+    }
+
+    /**
+     * @param distances row-major <code>n x n</code> matrix, closed in place
+     * @param n         number of vertexes
+     */
+    static void floydWarshall(double[] distances, int n) {
+        int blocks = (n + BLOCK - 1) / BLOCK;
+
+        for (int k = 0; k < blocks; k++) {
+            final int kb = k;
+
+            updateTile(distances, n, kb, kb, kb);
+
+            IntStream.range(0, 2 * blocks).parallel()
+                    .filter(t -> t % blocks != kb)
+                    .forEach(t -> {
+                        if (t < blocks)
+                            updateTile(distances, n, kb, t, kb);
+                        else
+                            updateTile(distances, n, t - blocks, kb, kb);
+                    });
+
+            IntStream.range(0, blocks * blocks).parallel()
+                    .filter(t -> t / blocks != kb && t % blocks != kb)
+                    .forEach(t -> updateTile(distances, n, t / blocks, t % blocks, kb));
+        }
+    }
+
+    /**
+     * Inner loop is branch-free, so it can be vectorized; row is left after the first <code>k</code>
+     * giving a violation.
+     */
+    private static boolean violatesRow(double[] distances, int n, int i) {
+        int iRow = i * n;
+
+        for (int k = 0; k < n; k++) {
+            double ik = distances[iRow + k];
+            int kRow = k * n;
+            boolean violated = false;
+
+            for (int j = 0; j < n; j++)
+                violated |= distances[iRow + j] > (ik + distances[kRow + j]) * (1.0 + TOLERANCE);
+
+            if (violated)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Dijkstra's algorithm for dense graphs, <code>O(n^2)</code> with no heap.
+     *
+     * @return Distances from <code>source</code> to all vertexes.
+     */
+    private static double[] shortestPaths(double[] distances, int n, int source) {
+        double[] paths = Arrays.copyOfRange(distances, source * n, source * n + n);
+        boolean[] done = new boolean[n];
+
+        paths[source] = 0.0;
+        done[source] = true;
+        int current = source;
+
+        for (int step = 1; step < n; step++) {
+            int cRow = current * n;
+            double through = paths[current];
+            int nearest = -1;
+
+            for (int v = 0; v < n; v++) {
+                if (done[v])
+                    continue;
+
+                if (through + distances[cRow + v] < paths[v])
+                    paths[v] = through + distances[cRow + v];
+                if (nearest < 0 || paths[v] < paths[nearest])
+                    nearest = v;
+            }
+
+            if (paths[nearest] == Double.POSITIVE_INFINITY)
+                break;
+
+            done[nearest] = true;
+            current = nearest;
+        }
+
+        return paths;
+    }
+
+    /**
+     * Relaxes tile <code>(ib, jb)</code> through all intermediate vertexes of tile <code>kb</code>.
+     */
+    private static void updateTile(double[] distances, int n, int ib, int jb, int kb) {
+        int iEnd = Math.min(n, (ib + 1) * BLOCK);
+        int jStart = jb * BLOCK;
+        int jEnd = Math.min(n, jStart + BLOCK);
+        int kEnd = Math.min(n, (kb + 1) * BLOCK);
+
+        for (int k = kb * BLOCK; k < kEnd; k++) {
+            int kRow = k * n;
+
+            for (int i = ib * BLOCK; i < iEnd; i++) {
+                int iRow = i * n;
+                double ik = distances[iRow + k];
+                if (ik == Double.POSITIVE_INFINITY)
+                    continue;
+
+                for (int j = jStart; j < jEnd; j++) {
+                    double throughK = ik + distances[kRow + j];
+                    if (throughK < distances[iRow + j])
+                        distances[iRow + j] = throughK;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.fjps.main.graph;
+
+import java.util.Random;
+
+/**
+ * Complete graph of points in 2D or 3D space, distances computed on demand - keeps <code>O(n)</code> coordinates
+ * instead of <code>O(n^2)</code> edges or distances, so instances of a million vertexes fit in memory.
+ * <p>
+ * Solvers see it as any other <code>DistanceGraph</code>; algorithms which can use the geometry (like
+ * <code>NeighbourLists</code> and space-filling curve tours) ask for coordinates. Every <code>Metric</code> is at
+ * least the Chebyshev (max-coordinate) distance, which bounds spatial searches.
+ */
+public final class PointSetGraph implements DistanceGraph {
+
+    /**
+     * Distance function of points.
+     */
+    public enum Metric {
+        EUCLIDEAN,
+        /**
+         * Euclidean distance rounded up - integral and still metric.
+         */
+        CEIL_EUCLIDEAN,
+        MANHATTAN
+    }
+
+    private final Metric metric;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    /**
+     * Points on plane.
+     *
+     * @param x first coordinates; kept, not copied
+     * @param y second coordinates; kept, not copied
+     */
+    public PointSetGraph(Metric metric, double[] x, double[] y) {
+        this(metric, x, y, null);
+    }
+
+    /**
+     * @param x first coordinates; kept, not copied
+     * @param y second coordinates; kept, not copied
+     * @param z third coordinates, <code>null</code> for points on plane; kept, not copied
+     */
+    public PointSetGraph(Metric metric, double[] x, double[] y, double[] z) {
+        if (x.length != y.length || z != null && z.length != x.length)
+            throw new IllegalArgumentException("All coordinate arrays have to be of the same length.");
+
+        this.metric = metric;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * @param n          number of points
+     * @param dimensions <code>2</code> or <code>3</code>
+     * @param side       points are uniform in <code>[0, side)</code> along every axis
+     * @param seed       seed of coordinates
+     * @return Graph of random points.
+     */
+    public static PointSetGraph random(int n, int dimensions, double side, Metric metric, long seed) {
+        if (dimensions != 2 && dimensions != 3)
+            throw new IllegalArgumentException("Points have 2 or 3 coordinates, not " + dimensions + ".");
+
+        Random random = new Random(seed);
+        double[][] coordinates = new double[dimensions][n];
+        for (int i = 0; i < n; i++)
+            for (int d = 0; d < dimensions; d++)
+                coordinates[d][i] = side * random.nextDouble();
+
+        return new PointSetGraph(metric, coordinates[0], coordinates[1], dimensions == 3 ? coordinates[2] : null);
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return <code>2</code> or <code>3</code>.
+     */
+    public int getDimensions() {
+        return z == null ? 2 : 3;
+    }
+
+    /**
+     * @param v index of vertex
+     * @param d axis, <code>0 .. getDimensions()-1</code>
+     * @return Coordinate of <code>v</code> along axis <code>d</code>.
+     */
+    public double getCoordinate(int v, int d) {
+        return d == 0 ? x[v] : d == 1 ? y[v] : z[v];
+    }
+
+    @Override
+    public int getNumberVertexes() {
+        return x.length;
+    }
+
+    @Override
+    public double getDistance(int v1, int v2) {
+        double dx = x[v1] - x[v2];
+        double dy = y[v1] - y[v2];
+        double dz = z == null ? 0.0 : z[v1] - z[v2];
+
+        switch (metric) {
+            case EUCLIDEAN:
+                return Math.sqrt(dx * dx + dy * dy + dz * dz);
+            case CEIL_EUCLIDEAN:
+                return Math.ceil(Math.sqrt(dx * dx + dy * dy + dz * dz));
+            default:
+                return Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
+        }
+    }
+
+    @Override
+    public boolean isComplete() {
+        return true;
+    }
+}
@@ -0,0 +1,241 @@
+package com.fjps.main.graph;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse graph in compressed sparse row (CSR) form - neighbours of vertex <code>v</code> are
+ * <code>targets[offsets[v] .. offsets[v+1]-1]</code>, at distances kept at the same positions of
+ * <code>weights</code>. Every undirected edge is stored in both rows, so it takes 24 bytes, against about 100 bytes
+ * of <code>Vertex</code> neighbourhood entries, <code>Edge</code> and boxed weight of <code>Graph</code>.
+ * <p>
+ * Graph is made in bulk by <code>Builder</code> - edges are appended to primitive arrays and put into rows by two
+ * counting sorts in <code>O(n + m)</code>. Rows come out sorted by target, parallel edges are merged into the
+ * shortest one, so <code>getDistance()</code> is a binary search of a row.
+ * <p>
+ * Road networks are the typical input: <code>Dijkstra</code> iterates rows directly and
+ * <code>MetricClosure.between()</code> closes the metric among TSP stops only.
+ */
+public final class SparseGraph implements DistanceGraph {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final String[] labels;
+
+    private SparseGraph(int[] offsets, int[] targets, double[] weights, String[] labels) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.labels = labels;
+    }
+
+    /**
+     * @param graph any graph; its neighbours are taken from <code>forEachNeighbour()</code>
+     * @return New sparse graph with all edges and labels of <code>graph</code>.
+     */
+    public static SparseGraph copyOf(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        String[] labels = new String[n];
+        for (int i = 0; i < n; i++)
+            labels[i] = graph.getLabel(i);
+
+        Builder builder = new Builder(n).labels(labels);
+        for (int v = 0; v < n; v++) {
+            int from = v;
+            graph.forEachNeighbour(v, (u, distance) -> {
+                if (from < u)
+                    builder.addEdge(from, u, distance);
+            });
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public int getNumberVertexes() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return Number of undirected edges.
+     */
+    public int getNumberEdges() {
+        return targets.length / 2;
+    }
+
+    public int getDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    @Override
+    public double getDistance(int v1, int v2) {
+        if (v1 == v2)
+            return 0.0;
+
+        int position = Arrays.binarySearch(targets, offsets[v1], offsets[v1 + 1], v2);
+        return position < 0 ? Double.POSITIVE_INFINITY : weights[position];
+    }
+
+    @Override
+    public void forEachNeighbour(int v, NeighbourConsumer consumer) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++)
+            consumer.accept(targets[e], weights[e]);
+    }
+
+    @Override
+    public boolean isComplete() {
+        long n = getNumberVertexes();
+        return getNumberEdges() == n * (n - 1) / 2;
+    }
+
+    @Override
+    public String getLabel(int v) {
+        return labels == null ? "V" + v : labels[v];
+    }
+
+    /*
+     * Raw rows, for algorithms of this package - arrays are shared, not copied.
+     */
+
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    int[] getTargets() {
+        return targets;
+    }
+
+    double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Collects undirected edges of a graph of fixed number of vertexes. Single use - <code>build()</code> hands
+     * the arrays over to the graph.
+     */
+    public static final class Builder {
+
+        private final int n;
+        private String[] labels;
+
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] weight = new double[16];
+        private int edges;
+
+        public Builder(int n) {
+            if (n < 0)
+                throw new IllegalArgumentException("Cannot build graph of " + n + " vertexes.");
+
+            this.n = n;
+        }
+
+        /**
+         * @param labels names of vertexes, <code>null</code> for default ones
+         */
+        public Builder labels(String[] labels) {
+            if (labels != null && labels.length != n)
+                throw new IllegalArgumentException("Expected " + n + " labels, got " + labels.length + ".");
+
+            this.labels = labels;
+            return this;
+        }
+
+        /**
+         * Adds undirected edge. Loops are ignored; of parallel edges the shortest one is kept.
+         */
+        public Builder addEdge(int v1, int v2, double distance) {
+            if (from == null)
+                throw new IllegalStateException("Graph was already built.");
+            if (v1 < 0 || v1 >= n || v2 < 0 || v2 >= n)
+                throw new IllegalArgumentException("Edge (" + v1 + ", " + v2 + ") outside graph of " + n
+                        + " vertexes.");
+            if (!(distance >= 0.0))
+                throw new IllegalArgumentException("Invalid distance " + distance + " of edge (" + v1 + ", " + v2
+                        + ").");
+            if (v1 == v2)
+                return this;
+
+            if (edges == from.length) {
+                int capacity = edges + (edges >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+
+            from[edges] = v1;
+            to[edges] = v2;
+            weight[edges] = distance;
+            edges++;
+
+            return this;
+        }
+
+        /**
+         * Builds rows in <code>O(n + m)</code>: both directions of every edge are bucketed by target, then - stably -
+         * by source, which leaves every row sorted by target. Parallel edges end up adjacent and are merged.
+         */
+        public SparseGraph build() {
+            if (from == null)
+                throw new IllegalStateException("Graph was already built.");
+
+            int entries = 2 * edges;
+            if (entries < 0)
+                throw new IllegalArgumentException("Too many edges: " + edges + ".");
+
+            int[] byTargetSource = new int[entries];
+            int[] byTargetTarget = new int[entries];
+            double[] byTargetWeight = new double[entries];
+
+            int[] starts = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                starts[from[e] + 1]++;
+                starts[to[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++)
+                starts[v + 1] += starts[v];
+
+            int[] next = Arrays.copyOf(starts, n);
+            for (int e = 0; e < edges; e++) {
+                int position = next[to[e]]++;
+                byTargetSource[position] = from[e];
+                byTargetTarget[position] = to[e];
+                byTargetWeight[position] = weight[e];
+
+                position = next[from[e]]++;
+                byTargetSource[position] = to[e];
+                byTargetTarget[position] = from[e];
+                byTargetWeight[position] = weight[e];
+            }
+            from = to = null;
+            weight = null;
+
+            // degrees are symmetric, so the same bucket starts serve as row offsets
+            int[] targets = new int[entries];
+            double[] weights = new double[entries];
+            System.arraycopy(starts, 0, next, 0, n);
+            for (int position = 0; position < entries; position++) {
+                int e = next[byTargetSource[position]]++;
+                targets[e] = byTargetTarget[position];
+                weights[e] = byTargetWeight[position];
+            }
+
+            int[] offsets = new int[n + 1];
+            int size = 0;
+            for (int v = 0; v < n; v++) {
+                offsets[v] = size;
+                for (int e = starts[v]; e < starts[v + 1]; e++)
+                    if (size > offsets[v] && targets[size - 1] == targets[e])
+                        weights[size - 1] = Math.min(weights[size - 1], weights[e]);
+                    else {
+                        targets[size] = targets[e];
+                        weights[size++] = weights[e];
+                    }
+            }
+            offsets[n] = size;
+
+            return new SparseGraph(offsets, size == entries ? targets : Arrays.copyOf(targets, size),
+                    size == entries ? weights : Arrays.copyOf(weights, size), labels);
+        }
+    }
+}
@@ -12,13 +12,15 @@ import java.util.List;
  * I assume that vertex belongs to not directed graph, what is expressed by <code>addConnectionTo()</code>
  * & <code>removeConnectionTo()</code> methods.
  * <p>
+ * Besides its ID (used as a label), vertex added to a <code>Graph</code> gets a dense index <code>0 .. n-1</code>,
+ * which is what solvers work on. Index is managed by the graph and may change when other vertexes are removed.
+ * <p>
  * Created by Patryk Stopyra on 17/03/16.
  */
-public class Vertex<T extends Number> implements Comparable<Vertex>{
+public class Vertex<T extends Number> {
 
     private final String id;
-    private double minDistance = Double.POSITIVE_INFINITY;
-    private Vertex<T> previous;
+    private int index = -1;
     private final HashMap<Vertex, Edge<T>> neighbourhood;
 
     public Vertex(String id) {
@@ -80,6 +82,17 @@ public class Vertex<T extends Number> implements Comparable<Vertex>{
         return id;
     }
 
+    /**
+     * @return Index of this vertex in its graph or <code>-1</code> if it was not added to any.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     public HashMap<Vertex, Edge<T>> getNeighbourhood() {
         return neighbourhood;
     }
@@ -140,25 +153,4 @@ public class Vertex<T extends Number> implements Comparable<Vertex>{
 
         return false;
     }
-
-    public double getMinDistance() {
-        return minDistance;
-    }
-
-    public void setMinDistance(double minDistance) {
-        this.minDistance = minDistance;
-    }
-
-    public void setPrevious(Vertex previous) {
-        this.previous = previous;
-    }
-
-    public Vertex getPrevious() {
-        return this.previous;
-    }
-
-    @Override
-    public int compareTo(Vertex o) {
-        return Double.compare(minDistance, o.minDistance);
-    }
 }
@@ -0,0 +1,173 @@
+package com.fjps.main.io;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.io.exceptions.InvalidFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a graph - e.g. of a metric closure, so that later runs skip computing it.
+ * <p>
+ * Layout, all numbers little-endian:<br>
+ * 1. header of <code>HEADER_SIZE</code> bytes: magic <code>"TSPG"</code>, <code>int</code> version, <code>int</code>
+ * flags (<code>FLOAT_DISTANCES</code>, <code>COMPLETE</code>, <code>COORDINATES</code>), <code>int</code> number of
+ * vertexes <code>n</code>, zeros,<br>
+ * 2. distance block: upper triangle without diagonal, row by row - <code>n (n - 1) / 2</code> <code>float</code>s or
+ * <code>double</code>s,<br>
+ * 3. if <code>COORDINATES</code> flag is set, <code>n</code> pairs of <code>double</code> coordinates.
+ * <p>
+ * <code>read()</code> maps the file read-only and serves distances straight from the mapping, see
+ * <code>MappedDistanceGraph</code>.
+ */
+public final class GraphSnapshot {
+
+    public static final int MAGIC = 0x47505354; // "TSPG" read as little-endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+
+    public static final int FLOAT_DISTANCES = 1;
+    public static final int COMPLETE = 1 << 1;
+    public static final int COORDINATES = 1 << 2;
+
+    /**
+     * Precision of stored distances.
+     */
+    public enum Precision {
+        /**
+         * Half the size; exact for integer distances up to <code>2^24</code>.
+         */
+        FLOAT,
+        DOUBLE
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private GraphSnapshot() {
+    }
+
+    public static void write(Path path, DistanceGraph graph, Precision precision) throws IOException {
+        write(path, graph, precision, null, null);
+    }
+
+    /**
+     * Writes snapshot, row by row through a small buffer - graph of any size may be written.
+     *
+     * @param path      created or overwritten file
+     * @param graph     graph to be saved; assumed symmetric
+     * @param precision precision of distances
+     * @param x         first coordinates of vertexes, <code>null</code> for none
+     * @param y         second coordinates of vertexes, <code>null</code> for none
+     */
+    public static void write(Path path, DistanceGraph graph, Precision precision, double[] x, double[] y)
+            throws IOException {
+        int n = graph.getNumberVertexes();
+        boolean coordinates = x != null && y != null;
+        if (coordinates && (x.length != n || y.length != n))
+            throw new IllegalArgumentException("Expected " + n + " coordinates, got " + x.length + " and " + y.length
+                    + ".");
+
+        int flags = (precision == Precision.FLOAT ? FLOAT_DISTANCES : 0) | (graph.isComplete() ? COMPLETE : 0)
+                | (coordinates ? COORDINATES : 0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n);
+            while (buffer.position() < HEADER_SIZE)
+                buffer.put((byte) 0);
+
+            for (int i = 0; i < n - 1; i++)
+                for (int j = i + 1; j < n; j++) {
+                    if (buffer.remaining() < Double.BYTES)
+                        flush(channel, buffer);
+
+                    if (precision == Precision.FLOAT)
+                        buffer.putFloat((float) graph.getDistance(i, j));
+                    else
+                        buffer.putDouble(graph.getDistance(i, j));
+                }
+
+            for (int i = 0; coordinates && i < n; i++) {
+                if (buffer.remaining() < 2 * Double.BYTES)
+                    flush(channel, buffer);
+                buffer.putDouble(x[i]).putDouble(y[i]);
+            }
+
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Maps snapshot read-only. Nothing is copied onto the heap - distances are read from page cache, which all
+     * processes mapping the same file share. File may be closed, but must not be modified while the graph is used.
+     *
+     * @param path snapshot written by <code>write()</code>
+     * @return Graph backed by the mapped file.
+     * @throws InvalidFormatException when the file is not a snapshot of this version
+     */
+    public static MappedDistanceGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new InvalidFormatException("File of " + size + " bytes is too short for a snapshot.");
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new InvalidFormatException("Not a graph snapshot.");
+
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new InvalidFormatException("Unsupported snapshot version " + version + ", expected " + VERSION
+                        + ".");
+
+            int flags = header.getInt();
+            int n = header.getInt();
+            int bytes = (flags & FLOAT_DISTANCES) != 0 ? Float.BYTES : Double.BYTES;
+            long distances = (long) n * (n - 1) / 2 * bytes;
+            long expected = HEADER_SIZE + distances + ((flags & COORDINATES) != 0 ? 2L * Double.BYTES * n : 0);
+            if (n < 0 || size != expected)
+                throw new InvalidFormatException("Snapshot of " + n + " vertexes should have " + expected
+                        + " bytes, has " + size + ".");
+
+            MappedByteBuffer[] chunks = map(channel, HEADER_SIZE, distances);
+            MappedByteBuffer[] coordinates = (flags & COORDINATES) != 0 ?
+                    map(channel, HEADER_SIZE + distances, 2L * Double.BYTES * n)
+                    : null;
+
+            return new MappedDistanceGraph(n, flags, chunks, coordinates);
+        }
+    }
+
+    /**
+     * Maps <code>length</code> bytes from <code>start</code> in chunks of <code>MappedDistanceGraph.CHUNK</code>
+     * bytes - a single mapping cannot exceed 2 GB.
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, long start, long length) throws IOException {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + MappedDistanceGraph.CHUNK - 1)
+                / MappedDistanceGraph.CHUNK)];
+
+        for (int c = 0; c < chunks.length; c++) {
+            long offset = (long) c * MappedDistanceGraph.CHUNK;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset,
+                    Math.min(MappedDistanceGraph.CHUNK, length - offset));
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        return chunks;
+    }
+}
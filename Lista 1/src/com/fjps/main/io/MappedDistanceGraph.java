@@ -0,0 +1,93 @@
+package com.fjps.main.io;
+
+import com.fjps.main.graph.DistanceGraph;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * Read-only graph served straight from a memory-mapped <code>GraphSnapshot</code> - distances are never copied onto
+ * the heap, so a matrix bigger than the heap (or than <code>DistanceMatrix.MAX_SIZE</code>) can be solved, and
+ * processes mapping the same file share its pages.
+ * <p>
+ * Distance <code>(i, j)</code>, <code>i &lt; j</code>, is entry <code>i (2n - i - 1) / 2 + j - i - 1</code> of the
+ * upper triangle. File is mapped in chunks of <code>CHUNK</code> bytes; entry size divides it, so no entry spans two
+ * chunks. Reads use absolute positions only, so the graph is safe to share between threads.
+ */
+public final class MappedDistanceGraph implements DistanceGraph {
+
+    static final long CHUNK = 1L << 30;
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = CHUNK - 1;
+
+    private final int n;
+    private final int flags;
+    private final boolean floats;
+    private final MappedByteBuffer[] chunks;
+    private final MappedByteBuffer[] coordinates;
+
+    MappedDistanceGraph(int n, int flags, MappedByteBuffer[] chunks, MappedByteBuffer[] coordinates) {
+        this.n = n;
+        this.flags = flags;
+        this.floats = (flags & GraphSnapshot.FLOAT_DISTANCES) != 0;
+        this.chunks = chunks;
+        this.coordinates = coordinates;
+    }
+
+    @Override
+    public int getNumberVertexes() {
+        return n;
+    }
+
+    @Override
+    public double getDistance(int v1, int v2) {
+        if (v1 == v2)
+            return 0.0;
+        if (v1 > v2) {
+            int swap = v1;
+            v1 = v2;
+            v2 = swap;
+        }
+
+        long entry = (long) v1 * (2L * n - v1 - 1) / 2 + v2 - v1 - 1;
+        if (floats) {
+            long offset = entry * Float.BYTES;
+            return chunks[(int) (offset >>> CHUNK_BITS)].getFloat((int) (offset & CHUNK_MASK));
+        }
+
+        long offset = entry * Double.BYTES;
+        return chunks[(int) (offset >>> CHUNK_BITS)].getDouble((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * Read from the header - completeness was checked when the snapshot was written.
+     */
+    @Override
+    public boolean isComplete() {
+        return (flags & GraphSnapshot.COMPLETE) != 0;
+    }
+
+    public GraphSnapshot.Precision getPrecision() {
+        return floats ? GraphSnapshot.Precision.FLOAT : GraphSnapshot.Precision.DOUBLE;
+    }
+
+    public boolean hasCoordinates() {
+        return coordinates != null;
+    }
+
+    public double getX(int v) {
+        return coordinate(2L * v);
+    }
+
+    public double getY(int v) {
+        return coordinate(2L * v + 1);
+    }
+
+    private double coordinate(long index) {
+        if (coordinates == null)
+            throw new IllegalStateException("Snapshot has no coordinates.");
+
+        long offset = index * Double.BYTES;
+        return coordinates[(int) (offset >>> CHUNK_BITS)].getDouble((int) (offset & CHUNK_MASK));
+    }
+}
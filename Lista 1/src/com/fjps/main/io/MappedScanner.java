@@ -0,0 +1,251 @@
+package com.fjps.main.io;
+
+import com.fjps.main.io.exceptions.InvalidFormatException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer of an ASCII file, reading it through memory-mapped windows of <code>FileChannel</code>.
+ * <p>
+ * Numbers are parsed straight from the mapped bytes, so reading data sections allocates nothing; only keywords and
+ * header values become <code>String</code>s. Window is remapped every <code>WINDOW</code> bytes, so files bigger
+ * than one mapping (2 GB) are read as well - a token may span two windows.
+ */
+final class MappedScanner {
+
+    static final long WINDOW = 1L << 28;
+
+    /**
+     * Mantissas up to <code>2^53</code> times or divided by powers of ten up to <code>10^22</code> (all exact
+     * doubles) are correctly rounded by one floating-point operation.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+            1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int MAX_DIGITS = 18;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private int current;
+    private final byte[] token = new byte[64];
+    private int tokenLength;
+
+    MappedScanner(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowStart = -WINDOW;
+        advance();
+    }
+
+    /**
+     * @return Offset of the current byte in file.
+     */
+    long position() {
+        return window == null ? 0 : windowStart + window.position() - (current < 0 ? 0 : 1);
+    }
+
+    boolean atEnd() {
+        return current < 0;
+    }
+
+    /**
+     * Skips spaces, tabs and line ends.
+     */
+    void skipWhitespace() throws IOException {
+        while (current == ' ' || current == '\t' || current == '\r' || current == '\n')
+            advance();
+    }
+
+    /**
+     * Skips spaces and tabs, but not line ends.
+     */
+    void skipBlanks() throws IOException {
+        while (current == ' ' || current == '\t')
+            advance();
+    }
+
+    /**
+     * @return <code>true</code> if <code>c</code> was the current byte - it is consumed then.
+     */
+    boolean accept(char c) throws IOException {
+        if (current != c)
+            return false;
+
+        advance();
+        return true;
+    }
+
+    /**
+     * @return Letters, digits and underscores from the current byte on - e.g. a keyword; empty if there are none.
+     */
+    String readWord() throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        while (current == '_' || Character.isLetterOrDigit(current)) {
+            builder.append((char) current);
+            advance();
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return Rest of the line, trimmed; line end is consumed.
+     */
+    String readLine() throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        while (current >= 0 && current != '\n') {
+            builder.append((char) current);
+            advance();
+        }
+        advance();
+
+        return builder.toString().trim();
+    }
+
+    /**
+     * Skips whitespace, then reads an integer.
+     */
+    long readLong() throws IOException {
+        skipWhitespace();
+        long start = position();
+
+        boolean negative = current == '-';
+        if (current == '-' || current == '+')
+            advance();
+
+        long value = 0;
+        int digits = 0;
+        while (current >= '0' && current <= '9') {
+            if (++digits > MAX_DIGITS)
+                throw new InvalidFormatException("Integer too long at byte " + start + ".");
+            value = 10 * value + (current - '0');
+            advance();
+        }
+
+        if (digits == 0)
+            throw unexpected("integer");
+
+        return negative ? -value : value;
+    }
+
+    int readInt() throws IOException {
+        long start = position();
+        long value = readLong();
+        if (value != (int) value)
+            throw new InvalidFormatException("Integer " + value + " out of range at byte " + start + ".");
+
+        return (int) value;
+    }
+
+    /**
+     * Skips whitespace, then reads a decimal number, possibly with fraction and exponent. Common numbers are
+     * composed from their digits exactly; longer ones fall back to <code>Double.parseDouble()</code>.
+     */
+    double readDouble() throws IOException {
+        skipWhitespace();
+        tokenLength = 0;
+
+        boolean negative = current == '-';
+        if (current == '-' || current == '+')
+            take();
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+
+        for (boolean fraction = false; ; take()) {
+            if (current == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (current < '0' || current > '9')
+                break;
+
+            any = true;
+            if (digits < MAX_DIGITS) {
+                mantissa = 10 * mantissa + (current - '0');
+                if (mantissa != 0)
+                    digits++;
+                if (fraction)
+                    exponent--;
+            } else {
+                exact &= current == '0';
+                if (!fraction)
+                    exponent++;
+            }
+        }
+
+        if (!any)
+            throw unexpected("number");
+
+        if (current == 'e' || current == 'E') {
+            take();
+            boolean negativeExponent = current == '-';
+            if (current == '-' || current == '+')
+                take();
+            if (current < '0' || current > '9')
+                throw unexpected("exponent");
+
+            int value = 0;
+            while (current >= '0' && current <= '9') {
+                value = Math.min(10 * value + (current - '0'), 100000);
+                take();
+            }
+
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (exact && mantissa < 1L << 53 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        if (tokenLength > token.length)
+            throw new InvalidFormatException("Number too long at byte " + position() + ".");
+
+        return Double.parseDouble(new String(token, 0, tokenLength, StandardCharsets.US_ASCII));
+    }
+
+    InvalidFormatException unexpected(String expected) {
+        String found = current < 0 ? "end of file" : "'" + (char) current + "'";
+        return new InvalidFormatException("Expected " + expected + ", found " + found + " at byte " + position()
+                + ".");
+    }
+
+    /**
+     * Keeps the current byte of a number, for the slow path, and moves on.
+     */
+    private void take() throws IOException {
+        if (tokenLength < token.length)
+            token[tokenLength] = (byte) current;
+        tokenLength++;
+        advance();
+    }
+
+    private void advance() throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            long start = windowStart + WINDOW;
+            if (start >= size) {
+                current = -1;
+                return;
+            }
+
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+            windowStart = start;
+        }
+
+        current = window.get() & 0xFF;
+    }
+}
@@ -0,0 +1,107 @@
+package com.fjps.main.io;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * Complete graph of points, distances computed on demand by one of TSPLIB distance functions - keeps
+ * <code>O(n)</code> coordinates instead of <code>O(n^2)</code> distances, so instances of millions of vertexes fit in
+ * memory. Vertex <code>i</code> is TSPLIB node <code>i + 1</code>.
+ * <p>
+ * Functions follow TSPLIB 95 documentation (and Concorde for <code>GEO</code>, which truncates degrees):<br>
+ * <code>EUC_2D</code> - Euclidean distance rounded to the nearest integer,<br>
+ * <code>CEIL_2D</code> - Euclidean distance rounded up,<br>
+ * <code>ATT</code> - pseudo-Euclidean distance of att48 and att532,<br>
+ * <code>GEO</code> - geographical distance on the idealized sphere, coordinates being <code>DDD.MM</code> degrees
+ * and minutes; they are converted to radians once, when the graph is built.
+ */
+public final class TSPLibGraph implements DistanceGraph {
+
+    private static final double PI = 3.141592;
+    private static final double EARTH_RADIUS = 6378.388;
+
+    private final TSPLibInstance.WeightType type;
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * @param type coordinate-based distance function
+     * @param x    first coordinates (latitudes for <code>GEO</code>); kept, not copied
+     * @param y    second coordinates (longitudes for <code>GEO</code>); kept, not copied
+     */
+    public TSPLibGraph(TSPLibInstance.WeightType type, double[] x, double[] y) {
+        if (type == TSPLibInstance.WeightType.EXPLICIT)
+            throw new IllegalArgumentException("Explicit weights are not computed from coordinates.");
+        if (x.length != y.length)
+            throw new IllegalArgumentException("Got " + x.length + " first and " + y.length + " second coordinates.");
+
+        this.type = type;
+        if (type == TSPLibInstance.WeightType.GEO) {
+            this.x = new double[x.length];
+            this.y = new double[y.length];
+            for (int i = 0; i < x.length; i++) {
+                this.x[i] = radians(x[i]);
+                this.y[i] = radians(y[i]);
+            }
+        } else {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static double radians(double coordinate) {
+        double degrees = (int) coordinate;
+        double minutes = coordinate - degrees;
+
+        return PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+
+    public TSPLibInstance.WeightType getWeightType() {
+        return type;
+    }
+
+    @Override
+    public int getNumberVertexes() {
+        return x.length;
+    }
+
+    @Override
+    public double getDistance(int v1, int v2) {
+        if (v1 == v2)
+            return 0.0;
+
+        switch (type) {
+            case EUC_2D:
+                return (int) (Math.sqrt(squared(v1, v2)) + 0.5);
+            case CEIL_2D:
+                return Math.ceil(Math.sqrt(squared(v1, v2)));
+            case ATT: {
+                double r = Math.sqrt(squared(v1, v2) / 10.0);
+                int t = (int) (r + 0.5);
+                return t < r ? t + 1 : t;
+            }
+            default: {
+                double q1 = Math.cos(y[v1] - y[v2]);
+                double q2 = Math.cos(x[v1] - x[v2]);
+                double q3 = Math.cos(x[v1] + x[v2]);
+                return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+            }
+        }
+    }
+
+    private double squared(int v1, int v2) {
+        double dx = x[v1] - x[v2];
+        double dy = y[v1] - y[v2];
+
+        return dx * dx + dy * dy;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return true;
+    }
+
+    @Override
+    public String getLabel(int v) {
+        return String.valueOf(v + 1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.fjps.main.io;
+
+import com.fjps.main.graph.DistanceGraph;
+
+/**
+ * Symmetric TSP instance read from a TSPLIB file: its header and graph. Graph is a <code>TSPLibGraph</code> for
+ * coordinate-based weights and a <code>DistanceMatrix</code> for explicit ones; vertex <code>i</code> is node
+ * <code>i + 1</code> of the file.
+ */
+public final class TSPLibInstance {
+
+    /**
+     * Supported values of <code>EDGE_WEIGHT_TYPE</code>.
+     */
+    public enum WeightType {
+        EUC_2D, CEIL_2D, ATT, GEO, EXPLICIT
+    }
+
+    /**
+     * Supported values of <code>EDGE_WEIGHT_FORMAT</code> - layouts of <code>EDGE_WEIGHT_SECTION</code>.
+     */
+    public enum WeightFormat {
+        FULL_MATRIX, UPPER_ROW, LOWER_ROW, UPPER_DIAG_ROW, LOWER_DIAG_ROW
+    }
+
+    private final String name;
+    private final String comment;
+    private final WeightType weightType;
+    private final WeightFormat weightFormat;
+    private final DistanceGraph graph;
+
+    TSPLibInstance(String name, String comment, WeightType weightType, WeightFormat weightFormat,
+                   DistanceGraph graph) {
+        this.name = name;
+        this.comment = comment;
+        this.weightType = weightType;
+        this.weightFormat = weightFormat;
+        this.graph = graph;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return All <code>COMMENT</code> lines joined with new lines, empty if there were none.
+     */
+    public String getComment() {
+        return comment;
+    }
+
+    public WeightType getWeightType() {
+        return weightType;
+    }
+
+    /**
+     * @return Layout of explicit weights, <code>null</code> for coordinate-based ones.
+     */
+    public WeightFormat getWeightFormat() {
+        return weightFormat;
+    }
+
+    public int getDimension() {
+        return graph.getNumberVertexes();
+    }
+
+    public DistanceGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + getDimension() + " vertexes, " + weightType
+                + (weightFormat != null ? " " + weightFormat : "") + ")";
+    }
+}
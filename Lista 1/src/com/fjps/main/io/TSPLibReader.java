@@ -0,0 +1,242 @@
+package com.fjps.main.io;
+
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.DistanceMatrix;
+import com.fjps.main.io.exceptions.InvalidFormatException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of symmetric TSP instances in TSPLIB 95 format, with <code>EUC_2D</code>, <code>CEIL_2D</code>,
+ * <code>ATT</code>, <code>GEO</code> or <code>EXPLICIT</code> edge weights - the latter in <code>FULL_MATRIX</code>,
+ * <code>UPPER_ROW</code>, <code>LOWER_ROW</code>, <code>UPPER_DIAG_ROW</code> or <code>LOWER_DIAG_ROW</code> layout.
+ * <p>
+ * File is read through a memory-mapped <code>FileChannel</code> by <code>MappedScanner</code>; coordinates and
+ * weights go straight to primitive arrays - <code>TSPLibGraph</code> or <code>DistanceMatrix</code> - so big
+ * instances load at the speed of scanning their bytes. <code>DISPLAY_DATA_SECTION</code> is skipped, other
+ * sections (fixed edges, tours) and problem types are rejected.
+ */
+public final class TSPLibReader {
+
+    private final MappedScanner scanner;
+
+    private String name = "";
+    private final StringBuilder comment = new StringBuilder();
+    private int dimension = -1;
+    private TSPLibInstance.WeightType weightType;
+    private TSPLibInstance.WeightFormat weightFormat;
+
+    private double[] x;
+    private double[] y;
+    private DistanceMatrix matrix;
+
+    private TSPLibReader(MappedScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    public static TSPLibInstance read(String path) throws IOException {
+        return read(Paths.get(path));
+    }
+
+    /**
+     * @param path TSPLIB file
+     * @return Instance with a graph ready for solvers.
+     * @throws InvalidFormatException when the file is not a supported TSPLIB instance
+     */
+    public static TSPLibInstance read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TSPLibReader(new MappedScanner(channel)).read();
+        }
+    }
+
+    private TSPLibInstance read() throws IOException {
+        for (scanner.skipWhitespace(); !scanner.atEnd(); scanner.skipWhitespace()) {
+            String keyword = scanner.readWord();
+            scanner.skipBlanks();
+
+            switch (keyword) {
+                case "NODE_COORD_SECTION":
+                    readCoordinates();
+                    continue;
+                case "EDGE_WEIGHT_SECTION":
+                    readWeights();
+                    continue;
+                case "DISPLAY_DATA_SECTION":
+                    skipDisplayData();
+                    continue;
+                case "EOF":
+                    return instance();
+                case "":
+                    throw scanner.unexpected("keyword");
+                default:
+                    scanner.accept(':');
+                    header(keyword, scanner.readLine());
+            }
+        }
+
+        return instance();
+    }
+
+    private void header(String keyword, String value) throws InvalidFormatException {
+        switch (keyword) {
+            case "NAME":
+                name = value;
+                break;
+            case "COMMENT":
+                comment.append(comment.length() > 0 ? "\n" : "").append(value);
+                break;
+            case "TYPE":
+                if (!value.equals("TSP") && !value.startsWith("TSP "))
+                    throw new InvalidFormatException("Only symmetric TSP instances are supported, got " + value + ".");
+                break;
+            case "DIMENSION":
+                try {
+                    dimension = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    dimension = -1;
+                }
+                if (dimension < 1)
+                    throw new InvalidFormatException("Invalid dimension: " + value + ".");
+                break;
+            case "EDGE_WEIGHT_TYPE":
+                weightType = parse(TSPLibInstance.WeightType.class, keyword, value);
+                break;
+            case "EDGE_WEIGHT_FORMAT":
+                if (!value.equals("FUNCTION")) // coordinate-based weights
+                    weightFormat = parse(TSPLibInstance.WeightFormat.class, keyword, value);
+                break;
+            case "NODE_COORD_TYPE":
+                if (!value.equals("TWOD_COORDS") && !value.equals("NO_COORDS"))
+                    throw new InvalidFormatException("Unsupported node coordinates: " + value + ".");
+                break;
+            case "DISPLAY_DATA_TYPE":
+                break;
+            default:
+                throw new InvalidFormatException("Unsupported keyword: " + keyword + ".");
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String keyword, String value)
+            throws InvalidFormatException {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFormatException("Unsupported " + keyword + ": " + value + ".");
+        }
+    }
+
+    private void requireDimension(String section) throws InvalidFormatException {
+        if (dimension < 0)
+            throw new InvalidFormatException("DIMENSION has to precede " + section + ".");
+    }
+
+    /**
+     * Lines <code>node x y</code>, nodes numbered from 1, in any order.
+     */
+    private void readCoordinates() throws IOException {
+        requireDimension("NODE_COORD_SECTION");
+        if (weightType == null || weightType == TSPLibInstance.WeightType.EXPLICIT)
+            throw new InvalidFormatException("Coordinates need coordinate-based EDGE_WEIGHT_TYPE, got " + weightType
+                    + ".");
+
+        x = new double[dimension];
+        y = new double[dimension];
+        boolean[] seen = new boolean[dimension];
+
+        for (int i = 0; i < dimension; i++) {
+            long position = scanner.position();
+            int node = scanner.readInt() - 1;
+            if (node < 0 || node >= dimension || seen[node])
+                throw new InvalidFormatException("Invalid or repeated node " + (node + 1) + " at byte " + position
+                        + ".");
+
+            seen[node] = true;
+            x[node] = scanner.readDouble();
+            y[node] = scanner.readDouble();
+        }
+    }
+
+    private void readWeights() throws IOException {
+        requireDimension("EDGE_WEIGHT_SECTION");
+        if (weightType != TSPLibInstance.WeightType.EXPLICIT || weightFormat == null)
+            throw new InvalidFormatException("Weights need EXPLICIT EDGE_WEIGHT_TYPE and EDGE_WEIGHT_FORMAT.");
+        if (dimension > DistanceMatrix.MAX_SIZE)
+            throw new InvalidFormatException("Cannot keep explicit weights of " + dimension + " vertexes.");
+
+        String[] labels = new String[dimension];
+        for (int i = 0; i < dimension; i++)
+            labels[i] = String.valueOf(i + 1);
+        matrix = new DistanceMatrix(dimension, labels);
+
+        for (int i = 0; i < dimension; i++)
+            switch (weightFormat) {
+                case FULL_MATRIX:
+                    for (int j = 0; j < dimension; j++)
+                        weight(i, j);
+                    break;
+                case UPPER_ROW:
+                    for (int j = i + 1; j < dimension; j++)
+                        weight(i, j);
+                    break;
+                case LOWER_ROW:
+                    for (int j = 0; j < i; j++)
+                        weight(i, j);
+                    break;
+                case UPPER_DIAG_ROW:
+                    for (int j = i; j < dimension; j++)
+                        weight(i, j);
+                    break;
+                case LOWER_DIAG_ROW:
+                    for (int j = 0; j <= i; j++)
+                        weight(i, j);
+                    break;
+            }
+    }
+
+    /**
+     * Reads weight of <code>(i, j)</code>; diagonal and lower half of a full matrix are read and skipped.
+     */
+    private void weight(int i, int j) throws IOException {
+        double weight = scanner.readDouble();
+
+        if (i == j || weightFormat == TSPLibInstance.WeightFormat.FULL_MATRIX && j < i)
+            return;
+        if (weight < 0 || Double.isNaN(weight))
+            throw new InvalidFormatException("Invalid weight " + weight + " before byte " + scanner.position() + ".");
+
+        matrix.setDistance(i, j, weight);
+    }
+
+    private void skipDisplayData() throws IOException {
+        requireDimension("DISPLAY_DATA_SECTION");
+
+        for (int i = 0; i < dimension; i++) {
+            scanner.readInt();
+            scanner.readDouble();
+            scanner.readDouble();
+        }
+    }
+
+    private TSPLibInstance instance() throws InvalidFormatException {
+        if (weightType == null)
+            throw new InvalidFormatException("Missing EDGE_WEIGHT_TYPE.");
+
+        DistanceGraph graph;
+        if (weightType == TSPLibInstance.WeightType.EXPLICIT) {
+            if (matrix == null)
+                throw new InvalidFormatException("Missing EDGE_WEIGHT_SECTION.");
+            graph = matrix;
+        } else {
+            if (x == null)
+                throw new InvalidFormatException("Missing NODE_COORD_SECTION.");
+            graph = new TSPLibGraph(weightType, x, y);
+        }
+
+        return new TSPLibInstance(name, comment.toString(), weightType,
+                weightType == TSPLibInstance.WeightType.EXPLICIT ? weightFormat : null, graph);
+    }
+}
@@ -0,0 +1,15 @@
+package com.fjps.main.io.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a file does not follow the format it is read as.
+ */
+public class InvalidFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidFormatException(String message) {
+        super(message);
+    }
+}
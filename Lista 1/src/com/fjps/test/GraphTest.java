@@ -1,11 +1,26 @@
 package com.fjps.test;
 
+import com.fjps.main.calculation.NeighbourLists;
+import com.fjps.main.graph.Dijkstra;
+import com.fjps.main.graph.DistanceMatrix;
+import com.fjps.main.graph.Edge;
+import com.fjps.main.graph.EdgeIndex;
+import com.fjps.main.graph.Generator;
 import com.fjps.main.graph.Graph;
+import com.fjps.main.graph.MetricClosure;
+import com.fjps.main.graph.PointSetGraph;
+import com.fjps.main.graph.SparseGraph;
 import com.fjps.main.graph.Vertex;
 import com.fjps.main.graph.exceptions.NoSuchVertexException;
+import com.fjps.main.graph.exceptions.NoVerticesException;
+import com.fjps.main.graph.exceptions.WeightTypeNotSupported;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
 /**
  * Created by MagnaT on 30/03/16.
  */
@@ -153,4 +168,364 @@ public class GraphTest {
         System.out.println("Result:\n" + graph);
 
     }
+
+    @Test
+    public void vertexIndexesTest1() {
+        System.out.println("\n-----------------\nGraphTest: Test 4\n-----------------\n");
+
+        Graph<Double> graph = new Graph<>(4);
+
+        for (int i = 0; i < 4; i++)
+            Assert.assertEquals(i, graph.getVertex(i).getIndex());
+
+        Vertex<Double> v1 = graph.getVertex(1);
+        Vertex<Double> v3 = graph.getVertex(3);
+
+        graph.removeVertex(v1);
+
+        Assert.assertEquals(-1, v1.getIndex());
+        Assert.assertEquals(2, v3.getIndex());
+        Assert.assertEquals(v3, graph.getVertex(2));
+
+        Vertex<Double> v4 = graph.addVertex();
+
+        Assert.assertEquals("V4", v4.getID());
+        Assert.assertEquals(3, v4.getIndex());
+        Assert.assertEquals(4, graph.getNumberVertexes());
+    }
+
+    /**
+     * Metric closure of graph spanning several <code>MetricClosure</code> tiles, compared with plain Floyd-Warshall.
+     */
+    @Test
+    public void assureMetricTest3() throws NoVerticesException {
+        System.out.println("\n-----------------\nGraphTest: Test 5\n-----------------\n");
+
+        Generator gen = new Generator(150);
+        gen.generateVertices();
+        gen.generateEdges();
+
+        Graph<Double> graph = gen.getG();
+        DistanceMatrix expected = DistanceMatrix.of(graph);
+        int n = expected.getNumberVertexes();
+
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++)
+                    if (expected.getDistance(i, k) + expected.getDistance(k, j) < expected.getDistance(i, j))
+                        expected.setDistance(i, j, expected.getDistance(i, k) + expected.getDistance(k, j));
+
+        graph.assureMetric();
+        DistanceMatrix obtained = DistanceMatrix.of(graph);
+
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                Assert.assertEquals(expected.getDistance(i, j), obtained.getDistance(i, j), 1e-9);
+    }
+
+    /**
+     * Vertexes on a line are metric; one too long edge should be detected and repaired.
+     */
+    @Test
+    public void assureMetricTest4() {
+        System.out.println("\n-----------------\nGraphTest: Test 6\n-----------------\n");
+
+        Graph<Double> graph = new Graph<>(100);
+
+        for (int i = 0; i < 100; i++)
+            for (int j = i + 1; j < 100; j++)
+                graph.connect(graph.getVertex(i), graph.getVertex(j), (double) (j - i));
+
+        Assert.assertTrue(graph.isMetric());
+        Assert.assertTrue(graph.isMetric(0.01, 0.99));
+
+        graph.connect(graph.getVertex(3), graph.getVertex(70), 100.0);
+
+        Assert.assertFalse(graph.isMetric());
+
+        graph.assureMetric();
+
+        Assert.assertTrue(graph.isMetric());
+        Assert.assertEquals(67.0, graph.getVertex(3).getEdgeCost(graph.getVertex(70)), 1e-9);
+    }
+
+    /**
+     * Sparse graph: heap Dijkstra from every vertex (run concurrently on one engine) against Floyd-Warshall.
+     */
+    @Test
+    public void dijkstraTest1() {
+        System.out.println("\n-----------------\nGraphTest: Test 7\n-----------------\n");
+
+        Random random = new Random(8);
+        Graph<Double> graph = new Graph<>(200);
+
+        for (int i = 0; i < 200; i++)
+            graph.connect(graph.getVertex(i), graph.getVertex((i + 1) % 200), 1.0 + random.nextInt(100));
+        for (int k = 0; k < 400; k++) {
+            int v1 = random.nextInt(200), v2 = random.nextInt(200);
+            if (v1 != v2)
+                graph.connect(graph.getVertex(v1), graph.getVertex(v2), 1.0 + random.nextInt(100));
+        }
+
+        DistanceMatrix expected = DistanceMatrix.of(graph);
+        MetricClosure.floydWarshall(expected);
+
+        DistanceMatrix obtained = MetricClosure.allPairs(graph);
+        for (int i = 0; i < 200; i++)
+            for (int j = 0; j < 200; j++)
+                Assert.assertEquals(expected.getDistance(i, j), obtained.getDistance(i, j), 1e-9);
+
+        Dijkstra dijkstra = new Dijkstra(graph);
+        IntStream.range(0, 200).parallel().forEach(source -> {
+            int target = (source * 37 + 11) % 200;
+            int[] path = dijkstra.computePaths(source).getShortestPathTo(target);
+
+            Assert.assertEquals(source, path[0]);
+            Assert.assertEquals(target, path[path.length - 1]);
+            Assert.assertEquals(expected.getDistance(source, target), TestUtils.pathWeight(graph, path), 1e-9);
+            Assert.assertEquals(expected.getDistance(source, target), dijkstra.distance(source, target), 1e-9);
+        });
+    }
+
+    /**
+     * Lazy distances of points, and neighbour lists found on grid against the brute-force ones.
+     */
+    @Test
+    public void pointSetTest1() {
+        System.out.println("\n-----------------\nGraphTest: Test 8\n-----------------\n");
+
+        PointSetGraph plane = new PointSetGraph(PointSetGraph.Metric.EUCLIDEAN, new double[]{0, 3, 1},
+                new double[]{0, 4, 1});
+        Assert.assertEquals(5.0, plane.getDistance(0, 1), 0.0);
+        Assert.assertEquals(Math.sqrt(2), plane.getDistance(2, 0), 1e-12);
+        Assert.assertEquals(2, plane.getDimensions());
+
+        PointSetGraph space = new PointSetGraph(PointSetGraph.Metric.CEIL_EUCLIDEAN, new double[]{0, 1},
+                new double[]{0, 1}, new double[]{0, 1});
+        Assert.assertEquals(2.0, space.getDistance(0, 1), 0.0);
+        Assert.assertEquals(7.0, new PointSetGraph(PointSetGraph.Metric.MANHATTAN, new double[]{0, 3},
+                new double[]{0, -4}).getDistance(1, 0), 0.0);
+
+        for (PointSetGraph.Metric metric : PointSetGraph.Metric.values())
+            for (int dimensions = 2; dimensions <= 3; dimensions++) {
+                PointSetGraph points = PointSetGraph.random(700, dimensions, 1000.0, metric, dimensions);
+                DistanceMatrix matrix = DistanceMatrix.copyOf(points);
+
+                int[][] spatial = NeighbourLists.nearest(points, 8);
+                int[][] brute = NeighbourLists.nearest(matrix, 8);
+                for (int v = 0; v < 700; v++) {
+                    Assert.assertEquals(brute[v].length, spatial[v].length);
+                    for (int i = 0; i < brute[v].length; i++)
+                        Assert.assertEquals(matrix.getDistance(v, brute[v][i]),
+                                matrix.getDistance(v, spatial[v][i]), 0.0);
+                }
+            }
+    }
+
+    /**
+     * Graph built in bulk from an edge stream against the object graph, and closure among stops only.
+     */
+    @Test
+    public void sparseGraphTest1() {
+        System.out.println("\n-----------------\nGraphTest: Test 9\n-----------------\n");
+
+        int n = 500;
+        Random random = new Random(9);
+        Graph<Double> graph = new Graph<>(n);
+        SparseGraph.Builder builder = new SparseGraph.Builder(n);
+
+        for (int k = 0; k < 3 * n; k++) {
+            int v1 = k < n ? k : random.nextInt(n);
+            int v2 = k < n ? (k + 1) % n : random.nextInt(n);
+            double weight = 1.0 + random.nextInt(100);
+
+            builder.addEdge(v1, v2, weight);
+            if (v1 != v2 && (!graph.getVertex(v1).hasDirectConnection(graph.getVertex(v2))
+                    || graph.getDistance(v1, v2) > weight))
+                graph.connect(graph.getVertex(v1), graph.getVertex(v2), weight);
+        }
+        SparseGraph sparse = builder.build();
+
+        Assert.assertEquals(graph.getNumberEdges(), sparse.getNumberEdges());
+        Assert.assertFalse(sparse.isComplete());
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                Assert.assertEquals(graph.getDistance(i, j), sparse.getDistance(i, j), 0.0);
+
+        SparseGraph copy = SparseGraph.copyOf(graph);
+        Assert.assertEquals(sparse.getNumberEdges(), copy.getNumberEdges());
+        Assert.assertEquals("V7", copy.getLabel(7));
+
+        DistanceMatrix expected = MetricClosure.allPairs(graph);
+        DistanceMatrix obtained = MetricClosure.allPairs(sparse);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                Assert.assertEquals(expected.getDistance(i, j), obtained.getDistance(i, j), 0.0);
+
+        int[] stops = random.ints(0, n).distinct().limit(40).toArray();
+        DistanceMatrix closure = MetricClosure.between(sparse, stops);
+        Assert.assertEquals(stops.length, closure.getNumberVertexes());
+        Assert.assertTrue(MetricClosure.isMetric(closure));
+        for (int i = 0; i < stops.length; i++)
+            for (int j = 0; j < stops.length; j++)
+                Assert.assertEquals(expected.getDistance(stops[i], stops[j]), closure.getDistance(i, j), 0.0);
+
+        try {
+            builder.addEdge(0, 1, 1.0);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Primitive weights: <code>long</code>s beyond <code>2^53</code> have to be ordered exactly.
+     */
+    @Test
+    public void weightsTest1() {
+        System.out.println("\n------------------\nGraphTest: Test 10\n------------------\n");
+
+        long big = 1L << 60;
+        Graph<Long> graph = new Graph<>(3);
+        graph.connect(graph.getVertex(0), graph.getVertex(1), big + 1);
+        graph.connect(graph.getVertex(1), graph.getVertex(2), big);
+        graph.connect(graph.getVertex(0), graph.getVertex(2), big + 2);
+
+        Edge<Long> shortest = graph.getAllEdges().first();
+        Assert.assertEquals(big, shortest.getLongWeight());
+        Assert.assertTrue(shortest.isIntegral());
+        Assert.assertEquals(big + 2, graph.getAllEdges().last().getLongWeight());
+        Assert.assertEquals((double) big, graph.getDistance(1, 2), 0.0);
+
+        Graph<Double> doubles = new Graph<>(2);
+        doubles.connect(doubles.getVertex(0), doubles.getVertex(1), 2.5);
+        Assert.assertEquals(2.5, doubles.getAllEdges().first().getDistance(), 0.0);
+        Assert.assertFalse(doubles.getAllEdges().first().isIntegral());
+
+        Graph<Float> floats = new Graph<>(2);
+        try {
+            floats.connect(floats.getVertex(0), floats.getVertex(1), 1.0f);
+            Assert.fail();
+        } catch (WeightTypeNotSupported e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Radix sorted index against plain sort, kept until the graph changes; edges of close weights in order.
+     */
+    @Test
+    public void edgeIndexTest1() {
+        System.out.println("\n------------------\nGraphTest: Test 11\n------------------\n");
+
+        int n = 700;
+        Random random = new Random(11);
+        DistanceMatrix matrix = new DistanceMatrix(n);
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                switch (random.nextInt(4)) {
+                    case 0:
+                        break;
+                    case 1:
+                        matrix.setDistance(i, j, random.nextInt(3) == 0 ? 0.0 : 1.0 + random.nextInt(5));
+                        break;
+                    default:
+                        matrix.setDistance(i, j, 1e6 * random.nextDouble() * random.nextDouble());
+                }
+        matrix.setDistance(0, 1, Math.nextUp(1.0));
+
+        EdgeIndex index = EdgeIndex.of(matrix);
+        Assert.assertEquals(matrix.getNumberEdges(), index.size());
+        Assert.assertSame(index, EdgeIndex.of(matrix));
+
+        double[] expected = new double[index.size()];
+        int size = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                if (matrix.getDistance(i, j) < Double.POSITIVE_INFINITY)
+                    expected[size++] = matrix.getDistance(i, j);
+        Arrays.sort(expected);
+        for (int e = 0; e < index.size(); e++) {
+            Assert.assertEquals(expected[e], index.getDistance(e), 0.0);
+            Assert.assertTrue(index.getV1(e) < index.getV2(e));
+            Assert.assertEquals(index.getDistance(e), matrix.getDistance(index.getV1(e), index.getV2(e)), 0.0);
+        }
+
+        matrix.setDistance(2, 3, 0.5);
+        Assert.assertFalse(index == EdgeIndex.of(matrix));
+
+        Graph<Double> graph = new Graph<>(3);
+        graph.connect(graph.getVertex(0), graph.getVertex(1), 1.7);
+        graph.connect(graph.getVertex(1), graph.getVertex(2), 1.2);
+        Assert.assertEquals(1.2, graph.getAllEdges().first().getDistance(), 0.0);
+        index = graph.getEdgeIndex();
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(1, index.getV1(0));
+        Assert.assertSame(index, EdgeIndex.of(graph));
+
+        graph.connect(graph.getVertex(0), graph.getVertex(2), 0.3);
+        Assert.assertEquals(0.3, graph.getEdgeIndex().getDistance(0), 0.0);
+        Assert.assertEquals(3, graph.getEdgeIndex().size());
+    }
+
+    /**
+     * Strongly elongated point sets - grid cells stay square, lists still match brute force.
+     */
+    @Test
+    public void pointSetTest2() {
+        System.out.println("\n------------------\nGraphTest: Test 12\n------------------\n");
+
+        int n = 800;
+        Random random = new Random(12);
+        double[][] extents = {{1000.0, 0.5, 0.0}, {1.0, 1e5, 0.0}, {1e4, 1.0, 1e-3}, {0.0, 0.0, 5.0}};
+
+        for (double[] extent : extents) {
+            boolean space = extent[2] > 0.0;
+            double[][] coordinates = new double[3][n];
+            for (int i = 0; i < n; i++)
+                for (int d = 0; d < 3; d++)
+                    coordinates[d][i] = extent[d] * random.nextDouble();
+
+            PointSetGraph points = new PointSetGraph(PointSetGraph.Metric.EUCLIDEAN, coordinates[0],
+                    coordinates[1], space ? coordinates[2] : null);
+            DistanceMatrix matrix = DistanceMatrix.copyOf(points);
+
+            int[][] spatial = NeighbourLists.nearest(points, 6);
+            int[][] brute = NeighbourLists.nearest(matrix, 6);
+            for (int v = 0; v < n; v++) {
+                Assert.assertEquals(brute[v].length, spatial[v].length);
+                for (int i = 0; i < brute[v].length; i++)
+                    Assert.assertEquals(matrix.getDistance(v, brute[v][i]), matrix.getDistance(v, spatial[v][i]),
+                            0.0);
+            }
+        }
+    }
+
+    /**
+     * Missing connections are violations of metric, even with no finite detour around them.
+     */
+    @Test
+    public void isMetricTest1() {
+        System.out.println("\n------------------\nGraphTest: Test 13\n------------------\n");
+
+        Graph<Double> empty = new Graph<>(3);
+        Assert.assertFalse(empty.isMetric());
+        Assert.assertFalse(empty.isMetric(0.01, 0.99));
+
+        Graph<Double> components = new Graph<>(4);
+        components.connect(components.getVertex(0), components.getVertex(1), 1.0);
+        components.connect(components.getVertex(2), components.getVertex(3), 1.0);
+        Assert.assertFalse(components.isMetric());
+        Assert.assertFalse(components.isMetric(0.01, 0.99));
+
+        DistanceMatrix matrix = new DistanceMatrix(4);
+        for (int i = 0; i < 4; i++)
+            for (int j = i + 1; j < 4; j++)
+                matrix.setDistance(i, j, 1.0);
+        Assert.assertTrue(MetricClosure.isMetric(matrix));
+
+        matrix.setDistance(0, 3, Double.POSITIVE_INFINITY);
+        Assert.assertFalse(MetricClosure.isMetric(matrix));
+        Assert.assertFalse(MetricClosure.isProbablyMetric(matrix, 0.01, 0.99));
+    }
 }
@@ -0,0 +1,205 @@
+package com.fjps.test;
+
+import com.fjps.main.calculation.TSPHeldKarpSolver;
+import com.fjps.main.calculation.TSPImprovedSolver;
+import com.fjps.main.calculation.TSPOneHalfEstimator;
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.DistanceMatrix;
+import com.fjps.main.graph.MetricClosure;
+import com.fjps.main.io.GraphSnapshot;
+import com.fjps.main.io.MappedDistanceGraph;
+import com.fjps.main.io.TSPLibInstance;
+import com.fjps.main.io.TSPLibReader;
+import com.fjps.main.io.exceptions.InvalidFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reading and writing instances.
+ */
+public class IOTest {
+
+    private static final String BURMA14 = "NAME: burma14\n"
+            + "TYPE: TSP\n"
+            + "COMMENT: 14-Staedte in Burma (Zaw Win)\n"
+            + "DIMENSION: 14\n"
+            + "EDGE_WEIGHT_TYPE: GEO\n"
+            + "EDGE_WEIGHT_FORMAT: FUNCTION \n"
+            + "DISPLAY_DATA_TYPE: COORD_DISPLAY\n"
+            + "NODE_COORD_SECTION\n"
+            + "   1  16.47       96.10\n"
+            + "   2  16.47       94.44\n"
+            + "   3  20.09       92.54\n"
+            + "   4  22.39       93.37\n"
+            + "   5  25.23       97.24\n"
+            + "   6  22.00       96.05\n"
+            + "   7  20.47       97.02\n"
+            + "   8  17.20       96.29\n"
+            + "   9  16.30       97.38\n"
+            + "  10  14.05       98.12\n"
+            + "  11  16.53       97.38\n"
+            + "  12  21.52       95.59\n"
+            + "  13  19.41       97.13\n"
+            + "  14  20.09       94.55\n"
+            + "EOF\n";
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("instance", ".tsp");
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+
+        return path;
+    }
+
+    /**
+     * Known optimum of a <code>GEO</code> instance from TSPLIB.
+     */
+    @Test
+    public void tspLibTest1() throws IOException {
+        System.out.println("\n--------------\nIOTest: Test 1\n--------------\n");
+
+        TSPLibInstance instance = TSPLibReader.read(write(BURMA14));
+        System.out.println(instance);
+
+        Assert.assertEquals("burma14", instance.getName());
+        Assert.assertEquals(TSPLibInstance.WeightType.GEO, instance.getWeightType());
+        Assert.assertEquals(14, instance.getDimension());
+        Assert.assertEquals(3323.0,
+                new TSPHeldKarpSolver<Double>().calculateOptimum(instance.getGraph()).getCost(), 0.0);
+    }
+
+    /**
+     * Coordinate-based distances and number formats.
+     */
+    @Test
+    public void tspLibTest2() throws IOException {
+        System.out.println("\n--------------\nIOTest: Test 2\n--------------\n");
+
+        String points = "NODE_COORD_SECTION\n3 1e0 +1.0\n1 0 -0.0\r\n2 3.00 4E0\nEOF";
+        String header = "NAME : points\nTYPE : TSP\nDIMENSION : 3\nEDGE_WEIGHT_TYPE : ";
+
+        DistanceGraph euclidean = TSPLibReader.read(write(header + "EUC_2D\n" + points)).getGraph();
+        Assert.assertEquals(5.0, euclidean.getDistance(0, 1), 0.0);
+        Assert.assertEquals(1.0, euclidean.getDistance(0, 2), 0.0);
+        Assert.assertEquals(4.0, euclidean.getDistance(2, 1), 0.0);
+        Assert.assertEquals("2", euclidean.getLabel(1));
+
+        DistanceGraph ceil = TSPLibReader.read(write(header + "CEIL_2D\n" + points)).getGraph();
+        Assert.assertEquals(5.0, ceil.getDistance(0, 1), 0.0);
+        Assert.assertEquals(2.0, ceil.getDistance(0, 2), 0.0);
+
+        DistanceGraph att = TSPLibReader.read(write(header + "ATT\n" + points)).getGraph();
+        Assert.assertEquals(2.0, att.getDistance(0, 1), 0.0);
+        Assert.assertEquals(1.0, att.getDistance(0, 2), 0.0);
+
+        try {
+            TSPLibReader.read(write(header + "EUC_2D\nNODE_COORD_SECTION\n1 0 0\n2 1 x\n3 2 2\n"));
+            Assert.fail();
+        } catch (InvalidFormatException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            TSPLibReader.read(write(header + "EUC_3D\n" + points));
+            Assert.fail();
+        } catch (InvalidFormatException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Every explicit layout has to give the same matrix.
+     */
+    @Test
+    public void tspLibTest3() throws IOException {
+        System.out.println("\n--------------\nIOTest: Test 3\n--------------\n");
+
+        int n = 9;
+        Random random = new Random(3);
+        int[][] weights = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                weights[i][j] = weights[j][i] = 1 + random.nextInt(1000);
+
+        for (TSPLibInstance.WeightFormat format : TSPLibInstance.WeightFormat.values()) {
+            StringBuilder file = new StringBuilder("NAME: explicit\nTYPE: TSP\nDIMENSION: " + n
+                    + "\nEDGE_WEIGHT_TYPE: EXPLICIT\nEDGE_WEIGHT_FORMAT: " + format + "\nEDGE_WEIGHT_SECTION\n");
+
+            int written = 0;
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    boolean upper = format.name().startsWith("UPPER");
+                    boolean diagonal = format.name().contains("DIAG");
+                    if (format == TSPLibInstance.WeightFormat.FULL_MATRIX || (upper ? j > i : j < i)
+                            || diagonal && i == j)
+                        file.append(weights[i][j]).append(++written % 7 == 0 ? "\n" : " ");
+                }
+            file.append("\nEOF\n");
+
+            TSPLibInstance instance = TSPLibReader.read(write(file.toString()));
+            Assert.assertEquals(format, instance.getWeightFormat());
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    Assert.assertEquals(weights[i][j], instance.getGraph().getDistance(i, j), 0.0);
+        }
+    }
+
+    /**
+     * Snapshot has to give back the saved distances - exactly in double precision - and reject foreign files.
+     */
+    @Test
+    public void snapshotTest1() throws IOException {
+        System.out.println("\n--------------\nIOTest: Test 4\n--------------\n");
+
+        int n = 120;
+        Random random = new Random(4);
+        DistanceMatrix sparse = new DistanceMatrix(n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+            for (int j = 0; j < i; j++)
+                if (random.nextInt(4) == 0 || j == i - 1)
+                    sparse.setDistance(i, j, 1.0 + random.nextDouble());
+        }
+        DistanceMatrix closure = MetricClosure.of(sparse);
+
+        Path path = write("");
+        GraphSnapshot.write(path, closure, GraphSnapshot.Precision.DOUBLE);
+        MappedDistanceGraph mapped = GraphSnapshot.read(path);
+        Assert.assertEquals(n, mapped.getNumberVertexes());
+        Assert.assertTrue(mapped.isComplete());
+        Assert.assertFalse(mapped.hasCoordinates());
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                Assert.assertEquals(closure.getDistance(i, j), mapped.getDistance(i, j), 0.0);
+
+        TSPImprovedSolver<Double> solver = new TSPImprovedSolver<>(new TSPOneHalfEstimator<>());
+        Assert.assertEquals(solver.calculateOptimum(closure).getCost(), solver.calculateOptimum(mapped).getCost(),
+                1e-9);
+
+        GraphSnapshot.write(path, sparse, GraphSnapshot.Precision.FLOAT, x, y);
+        mapped = GraphSnapshot.read(path);
+        Assert.assertEquals(GraphSnapshot.Precision.FLOAT, mapped.getPrecision());
+        Assert.assertFalse(mapped.isComplete());
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(x[i], mapped.getX(i), 0.0);
+            Assert.assertEquals(y[i], mapped.getY(i), 0.0);
+            for (int j = 0; j < n; j++)
+                Assert.assertEquals((float) sparse.getDistance(i, j), mapped.getDistance(i, j), 0.0);
+        }
+
+        try {
+            GraphSnapshot.read(write(BURMA14));
+            Assert.fail();
+        } catch (InvalidFormatException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
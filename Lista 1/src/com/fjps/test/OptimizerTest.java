@@ -1,13 +1,45 @@
 package com.fjps.test;
 
+import com.fjps.main.calculation.ArrayTour;
+import com.fjps.main.calculation.BatchSolver;
+import com.fjps.main.calculation.BatchStatistics;
+import com.fjps.main.calculation.CancellationToken;
+import com.fjps.main.calculation.DynamicTourSession;
+import com.fjps.main.calculation.LocalSearchImprover;
+import com.fjps.main.calculation.Matchings;
+import com.fjps.main.calculation.SolveCache;
+import com.fjps.main.calculation.SolveOptions;
+import com.fjps.main.calculation.SolveResult;
+import com.fjps.main.calculation.SpanningTrees;
+import com.fjps.main.calculation.TSPBranchAndBoundSolver;
+import com.fjps.main.calculation.TSPCachedSolver;
 import com.fjps.main.calculation.TSPExactSolver;
+import com.fjps.main.calculation.TSPHeldKarpSolver;
+import com.fjps.main.calculation.TSPImprovedSolver;
+import com.fjps.main.calculation.TSPLinKernighanSolver;
 import com.fjps.main.calculation.TSPOneHalfEstimator;
+import com.fjps.main.calculation.TSPSpaceFillingCurveEstimator;
+import com.fjps.main.calculation.Tour;
+import com.fjps.main.calculation.Tours;
+import com.fjps.main.calculation.TwoLevelListTour;
+import com.fjps.main.graph.DistanceMatrix;
 import com.fjps.main.graph.Generator;
 import com.fjps.main.graph.Graph;
+import com.fjps.main.graph.GraphFingerprint;
+import com.fjps.main.graph.PointSetGraph;
 import com.fjps.main.graph.exceptions.NoVerticesException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
 /**
  * Optimizer tests.
  * <p>
@@ -24,8 +56,10 @@ public class OptimizerTest {
         TSPExactSolver<Double> solver = new TSPExactSolver<>();
         TSPOneHalfEstimator<Double> estimator = new TSPOneHalfEstimator<>();
 
-        Double exactCost = solver.calculateOptimum(graph);
-        Double estimatedCost = estimator.calculateOptimum(graph);
+        SolveResult<Double> exact = solver.calculateOptimum(graph);
+        SolveResult<Double> estimated = estimator.calculateOptimum(graph);
+        Double exactCost = exact.getCost();
+        Double estimatedCost = estimated.getCost();
 
         System.out.println("Exact solver: " + exactCost + "(x1.5: " + 1.5 * exactCost + ")");
         System.out.println("Estimator: " + estimatedCost);
@@ -33,8 +67,8 @@ public class OptimizerTest {
         Assert.assertTrue(exactCost * 1.5 >= estimatedCost);
 
         System.out.println();
-        System.out.println("Exact     " + solver.getPathAsString());
-        System.out.println("Estimated " + estimator.getPathAsString());
+        System.out.println("Exact     " + exact.getPathAsString());
+        System.out.println("Estimated " + estimated.getPathAsString());
     }
 
     @Test
@@ -46,8 +80,10 @@ public class OptimizerTest {
         TSPExactSolver<Double> solver = new TSPExactSolver<>();
         TSPOneHalfEstimator<Double> estimator = new TSPOneHalfEstimator<>();
 
-        Double exactCost = solver.calculateOptimum(graph);
-        Double estimatedCost = estimator.calculateOptimum(graph);
+        SolveResult<Double> exact = solver.calculateOptimum(graph);
+        SolveResult<Double> estimated = estimator.calculateOptimum(graph);
+        Double exactCost = exact.getCost();
+        Double estimatedCost = estimated.getCost();
 
         System.out.println("Exact solver: " + exactCost + "(x1.5: " + 1.5 * exactCost + ")");
         System.out.println("Estimator: " + estimatedCost);
@@ -55,8 +91,8 @@ public class OptimizerTest {
         Assert.assertTrue(exactCost * 1.5 >= estimatedCost);
 
         System.out.println();
-        System.out.println("Exact     " + solver.getPathAsString());
-        System.out.println("Estimated " + estimator.getPathAsString());
+        System.out.println("Exact     " + exact.getPathAsString());
+        System.out.println("Estimated " + estimated.getPathAsString());
     }
 
     @Test
@@ -75,18 +111,20 @@ public class OptimizerTest {
             Graph<Double> graph = gen.getG();
             graph.assureMetric();
 
-            TSPExactSolver<Double> solver = new TSPExactSolver<>();
+            TSPHeldKarpSolver<Double> solver = new TSPHeldKarpSolver<>();
             TSPOneHalfEstimator<Double> estimator = new TSPOneHalfEstimator<>();
 
             start = System.nanoTime();
-            Double exactCost = solver.calculateOptimum(graph);
+            SolveResult<Double> exact = solver.calculateOptimum(graph);
+            Double exactCost = exact.getCost();
             end = System.nanoTime();
 
             System.out.println();
             System.out.println("Exact solver time: " + TestUtils.format(end-start));
 
             start = System.nanoTime();
-            Double estimatedCost = estimator.calculateOptimum(graph);
+            SolveResult<Double> estimated = estimator.calculateOptimum(graph);
+            Double estimatedCost = estimated.getCost();
             end = System.nanoTime();
 
             System.out.println("Estimator time:    " + TestUtils.format(end-start));
@@ -96,11 +134,12 @@ public class OptimizerTest {
             System.out.println("Estimator:    " + estimatedCost);
 
             System.out.println();
-            System.out.println("Exact     " + solver.getPathAsString());
-            System.out.println("Estimated " + estimator.getPathAsString());
+            System.out.println("Exact     " + exact.getPathAsString());
+            System.out.println("Estimated " + estimated.getPathAsString());
 
             Assert.assertTrue(exactCost * 1.5 >= estimatedCost);
-            Assert.assertTrue(exactCost <= estimatedCost); //just to check if exact solver works properly
+            // different tours of equal length (common after assureMetric()) may differ by rounding of sums
+            Assert.assertTrue(exactCost <= estimatedCost * (1 + 1e-12)); //just to check if exact solver works properly
         }
     }
 
@@ -181,4 +220,563 @@ public class OptimizerTest {
             System.out.println(i + "\t" + avg/reps/1000000);
         }
     }
+
+    /**
+     * Solvers run on <code>DistanceMatrix</code> should give the same guarantees as on <code>Graph</code>.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest6() throws NoVerticesException {
+        System.out.println("\n---------------------\nOptimizerTest: Test 6\n---------------------\n");
+
+        for (int i = 3; i < 12; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            Graph<Double> graph = gen.getG();
+            graph.assureMetric();
+
+            DistanceMatrix matrix = DistanceMatrix.of(graph);
+
+            TSPExactSolver<Double> solver = new TSPExactSolver<>();
+            TSPOneHalfEstimator<Double> estimator = new TSPOneHalfEstimator<>();
+
+            SolveResult<Double> exact = solver.calculateOptimum(matrix);
+            SolveResult<Double> estimated = estimator.calculateOptimum(matrix);
+            double exactCost = exact.getCost();
+            double estimatedCost = estimated.getCost();
+
+            System.out.println(i + "\tExact: " + exactCost + "\tEstimated: " + estimatedCost);
+            System.out.println("\tExact     " + exact.getPathAsString());
+            System.out.println("\tEstimated " + estimated.getPathAsString());
+
+            Assert.assertEquals(i, estimated.getTour().length);
+            Assert.assertTrue(exactCost * 1.5 >= estimatedCost);
+        }
+    }
+
+    /**
+     * Prim's and Kruskal's algorithms should find trees of the same weight.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest7() throws NoVerticesException {
+        System.out.println("\n---------------------\nOptimizerTest: Test 7\n---------------------\n");
+
+        for (int i = 2; i < 60; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            DistanceMatrix matrix = DistanceMatrix.of(gen.getG());
+
+            int[] prim = SpanningTrees.prim(matrix);
+            int[] kruskal = SpanningTrees.kruskal(matrix);
+
+            Assert.assertEquals(2 * (i - 1), prim.length);
+            Assert.assertEquals(2 * (i - 1), kruskal.length);
+            Assert.assertEquals(TestUtils.edgesWeight(matrix, kruskal), TestUtils.edgesWeight(matrix, prim), 1e-9);
+        }
+    }
+
+    /**
+     * Blossom matching should be as good as the best one found by brute force; greedy one cannot be better.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest8() throws NoVerticesException {
+        System.out.println("\n---------------------\nOptimizerTest: Test 8\n---------------------\n");
+
+        for (int i = 2; i <= 14; i += 2) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            DistanceMatrix matrix = DistanceMatrix.of(gen.getG());
+            int[] vertices = new int[i];
+            for (int v = 0; v < i; v++)
+                vertices[v] = v;
+
+            double exact = TestUtils.edgesWeight(matrix, Matchings.minimumPerfectMatching(matrix, vertices));
+            double greedy = TestUtils.edgesWeight(matrix, Matchings.greedyMatching(matrix, vertices));
+            double bruteForce = TestUtils.minimumPerfectMatchingWeight(matrix);
+
+            System.out.println(i + "\tExact: " + exact + "\tGreedy: " + greedy + "\tBrute force: " + bruteForce);
+
+            Assert.assertEquals(bruteForce, exact, 1e-6);
+            Assert.assertTrue(greedy >= exact - 1e-6);
+        }
+    }
+
+    /**
+     * Held-Karp solver should find the same length as brute force; annealing cannot do better.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest9() throws NoVerticesException {
+        System.out.println("\n---------------------\nOptimizerTest: Test 9\n---------------------\n");
+
+        for (int i = 2; i < 10; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            DistanceMatrix matrix = DistanceMatrix.of(gen.getG());
+
+            TSPHeldKarpSolver<Double> solver = new TSPHeldKarpSolver<>();
+            SolveResult<Double> exact = solver.calculateOptimum(matrix);
+            double exactCost = exact.getCost();
+            double annealedCost = new TSPExactSolver<Double>().calculateOptimum(matrix).getCost();
+            double bruteForce = TestUtils.optimalTourLength(matrix);
+
+            System.out.println(i + "\tHeld-Karp: " + exactCost + "\tAnnealing: " + annealedCost
+                    + "\tBrute force: " + bruteForce);
+
+            Assert.assertEquals(i, exact.getTour().length);
+            Assert.assertEquals(bruteForce, exactCost, 1e-9);
+            Assert.assertTrue(annealedCost >= exactCost - 1e-9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void optimizerTest10() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 10\n----------------------\n");
+
+        new TSPHeldKarpSolver<Double>(1 << 20).calculateOptimum(new DistanceMatrix(20));
+    }
+
+    /**
+     * Branch and bound should prove the same optimum as Held-Karp.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest11() throws NoVerticesException {
+        System.out.println("\n----------------------\nOptimizerTest: Test 11\n----------------------\n");
+
+        for (int i = 2; i < 16; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            Graph<Double> graph = gen.getG();
+            graph.assureMetric();
+
+            TSPBranchAndBoundSolver<Double> solver = new TSPBranchAndBoundSolver<>();
+            SolveResult<Double> exact = solver.calculateOptimum(graph);
+            double exactCost = exact.getCost();
+            double heldKarpCost = new TSPHeldKarpSolver<Double>().calculateOptimum(graph).getCost();
+
+            System.out.println(i + "\tBranch and bound: " + exactCost + "\tHeld-Karp: " + heldKarpCost
+                    + "\t" + exact);
+
+            Assert.assertEquals(heldKarpCost, exactCost, 1e-9 * heldKarpCost);
+            Assert.assertEquals(0.0, exact.getGap(), 0.0);
+            Assert.assertEquals(i, exact.getRoute().size());
+        }
+    }
+
+    /**
+     * Local search after Christofides cannot make the tour longer, nor shorter than optimal one.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest12() throws NoVerticesException {
+        System.out.println("\n----------------------\nOptimizerTest: Test 12\n----------------------\n");
+
+        for (int i = 3; i < 40; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            Graph<Double> graph = gen.getG();
+            graph.assureMetric();
+
+            TSPImprovedSolver<Double> solver = new TSPImprovedSolver<>(new TSPOneHalfEstimator<>());
+            SolveResult<Double> improved = solver.calculateOptimum(graph);
+            double improvedCost = improved.getCost();
+            double estimatedCost = new TSPOneHalfEstimator<Double>().calculateOptimum(graph).getCost();
+
+            System.out.println(i + "\tImproved: " + improvedCost + "\tEstimated: " + estimatedCost);
+
+            Assert.assertTrue(improvedCost <= estimatedCost * (1 + 1e-12));
+            Assert.assertEquals(i, improved.getRoute().size());
+            Assert.assertEquals(improvedCost, TestUtils.routeWeight(improved.getRoute()), 1e-9);
+
+            if (i < 12)
+                Assert.assertTrue(improvedCost
+                        >= new TSPHeldKarpSolver<Double>().calculateOptimum(graph).getCost() - 1e-9);
+        }
+    }
+
+    /**
+     * Lin-Kernighan search cannot make Christofides tour longer; with some time for kicks it should get close to
+     * the optimum.
+     *
+     * @throws NoVerticesException
+     */
+    @Test
+    public void optimizerTest13() throws NoVerticesException {
+        System.out.println("\n----------------------\nOptimizerTest: Test 13\n----------------------\n");
+
+        for (int i = 3; i < 14; i++) {
+            Generator gen = new Generator(i);
+            gen.generateVertices();
+            gen.generateEdges();
+
+            Graph<Double> graph = gen.getG();
+            graph.assureMetric();
+
+            TSPLinKernighanSolver<Double> solver = new TSPLinKernighanSolver<>(20, i);
+            SolveResult<Double> improved = solver.calculateOptimum(graph);
+            double improvedCost = improved.getCost();
+            double estimatedCost = new TSPOneHalfEstimator<Double>().calculateOptimum(graph).getCost();
+            double exactCost = new TSPHeldKarpSolver<Double>().calculateOptimum(graph).getCost();
+
+            System.out.println(i + "\tLin-Kernighan: " + improvedCost + "\tEstimated: " + estimatedCost
+                    + "\tExact: " + exactCost);
+
+            Assert.assertTrue(improvedCost <= estimatedCost * (1 + 1e-12));
+            Assert.assertTrue(improvedCost >= exactCost * (1 - 1e-12));
+            Assert.assertEquals(i, improved.getRoute().size());
+        }
+
+        Random random = new Random(13);
+        DistanceMatrix matrix = new DistanceMatrix(80);
+        double[] x = new double[80];
+        double[] y = new double[80];
+        for (int v = 0; v < 80; v++) {
+            x[v] = random.nextInt(1000);
+            y[v] = random.nextInt(1000);
+        }
+        for (int v = 0; v < 80; v++)
+            for (int u = v + 1; u < 80; u++)
+                matrix.setDistance(v, u, Math.rint(Math.hypot(x[v] - x[u], y[v] - y[u])));
+
+        double improvedCost = new TSPLinKernighanSolver<Double>(300, 13).calculateOptimum(matrix).getCost();
+        double exactCost = new TSPBranchAndBoundSolver<Double>().calculateOptimum(matrix).getCost();
+
+        System.out.println("80\tLin-Kernighan: " + improvedCost + "\tExact: " + exactCost);
+
+        Assert.assertTrue(improvedCost >= exactCost);
+        Assert.assertTrue(improvedCost <= 1.02 * exactCost);
+    }
+
+    /**
+     * Two-level list tour has to follow array tour through random 2-opt moves - both have to describe the same
+     * cycle, maybe in opposite directions.
+     */
+    @Test
+    public void optimizerTest14() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 14\n----------------------\n");
+
+        Random random = new Random(14);
+
+        for (int n : new int[]{3, 5, 10, 64, 200, 1500}) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++)
+                order[i] = i;
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+
+            Tour array = new ArrayTour(order);
+            Tour list = new TwoLevelListTour(order);
+
+            for (int move = 0; move < 2000; move++) {
+                int a = random.nextInt(n);
+                int c = random.nextInt(n);
+                boolean forward = random.nextBoolean();
+                int b = array.step(a, forward);
+                int d = array.step(c, forward);
+                if (a == c || b == c || a == d)
+                    continue;
+
+                array.flip(a, b, c, d);
+                list.flip(a, b, c, d);
+            }
+
+            boolean same = array.next(0) == list.next(0);
+            for (int v = 0; v < n; v++) {
+                Assert.assertEquals(array.next(v), same ? list.next(v) : list.previous(v));
+                Assert.assertEquals(v, list.previous(list.next(v)));
+            }
+
+            for (int query = 0; query < 1000; query++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                int c = random.nextInt(n);
+                Assert.assertEquals(array.between(a, b, c), same ? list.between(a, b, c) : list.between(c, b, a));
+            }
+
+            System.out.println(n + "\tOK");
+        }
+    }
+
+    /**
+     * Budgeted solves have to finish about the deadline, report only improving tours and return the last one;
+     * cancelled solves still return a tour.
+     */
+    @Test
+    public void optimizerTest15() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 15\n----------------------\n");
+
+        DistanceMatrix matrix = TestUtils.getEuclideanMatrix(300, 15);
+        List<Double> reported = new ArrayList<>();
+
+        long start = System.nanoTime();
+        TSPLinKernighanSolver<Double> solver = new TSPLinKernighanSolver<>(60000, 15);
+        SolveResult<Double> result = solver.solve(matrix, SolveOptions.withBudget(200).reportingTo((tour, l) -> {
+            Assert.assertTrue(TestUtils.isTour(tour, 300));
+            Assert.assertEquals(l, Tours.length(matrix, tour), 1e-9);
+            reported.add(l);
+        }));
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Lin-Kernighan: " + result + ", total " + TestUtils.format(elapsed) + ", "
+                + reported.size() + " improvements");
+
+        Assert.assertTrue(elapsed < 2000000000L);
+        Assert.assertTrue(TestUtils.isTour(result.getTour(), 300));
+        Assert.assertFalse(reported.isEmpty());
+        for (int i = 1; i < reported.size(); i++)
+            Assert.assertTrue(reported.get(i) < reported.get(i - 1));
+        Assert.assertEquals(reported.get(reported.size() - 1), result.getCost(), 1e-9);
+
+        CancellationToken token = new CancellationToken();
+        result = new TSPBranchAndBoundSolver<Double>().solve(matrix,
+                SolveOptions.unlimited().cancelledBy(token).reportingTo((tour, l) -> token.cancel()));
+
+        System.out.println("Cancelled branch and bound: " + result);
+
+        Assert.assertTrue(TestUtils.isTour(result.getTour(), 300));
+        Assert.assertEquals(Tours.length(matrix, result.getTour()), result.getCost(), 1e-9);
+        Assert.assertTrue(result.getIterations() <= 1);
+
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel();
+        DistanceMatrix small = TestUtils.getEuclideanMatrix(20, 15);
+        result = new TSPHeldKarpSolver<Double>().solve(small, SolveOptions.unlimited().cancelledBy(cancelled));
+
+        Assert.assertTrue(TestUtils.isTour(result.getTour(), 20));
+        Assert.assertEquals(Tours.length(small, Tours.nearestNeighbour(small)), result.getCost(), 1e-9);
+    }
+
+    /**
+     * One solver instance shared by many threads has to give the same results as when called sequentially.
+     */
+    @Test
+    public void optimizerTest16() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 16\n----------------------\n");
+
+        DistanceMatrix[] matrices = new DistanceMatrix[16];
+        for (int i = 0; i < matrices.length; i++)
+            matrices[i] = TestUtils.getEuclideanMatrix(20 + 5 * i, i);
+
+        TSPImprovedSolver<Double> improved = new TSPImprovedSolver<>(new TSPOneHalfEstimator<>());
+        TSPHeldKarpSolver<Double> heldKarp = new TSPHeldKarpSolver<>();
+        DistanceMatrix[] small = new DistanceMatrix[8];
+        for (int i = 0; i < small.length; i++)
+            small[i] = TestUtils.getEuclideanMatrix(6 + i, i);
+
+        double[] sequential = new double[matrices.length + small.length];
+        for (int i = 0; i < matrices.length; i++)
+            sequential[i] = improved.calculateOptimum(matrices[i]).getCost();
+        for (int i = 0; i < small.length; i++)
+            sequential[matrices.length + i] = heldKarp.calculateOptimum(small[i]).getCost();
+
+        double[] concurrent = IntStream.range(0, sequential.length).parallel()
+                .mapToDouble(i -> i < matrices.length ? improved.calculateOptimum(matrices[i]).getCost()
+                        : heldKarp.calculateOptimum(small[i - matrices.length]).getCost())
+                .toArray();
+
+        Assert.assertArrayEquals(sequential, concurrent, 0.0);
+    }
+
+    /**
+     * Batch has to solve every instance exactly once, as the solver alone would, without reading more than
+     * <code>maxInFlight</code> instances ahead of the consumer.
+     */
+    @Test
+    public void optimizerTest17() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 17\n----------------------\n");
+
+        int instances = 300;
+        int maxInFlight = 4;
+        DistanceMatrix[] matrices = new DistanceMatrix[instances];
+        for (int i = 0; i < instances; i++)
+            matrices[i] = TestUtils.getEuclideanMatrix(8 + i % 20, i);
+
+        TSPImprovedSolver<Double> solver = new TSPImprovedSolver<>(new TSPOneHalfEstimator<>());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger pulled = new AtomicInteger();
+        int[] consumed = new int[1];
+        boolean[] seen = new boolean[instances];
+
+        BatchStatistics statistics = new BatchStatistics();
+        try {
+            new BatchSolver<>(solver, executor, maxInFlight)
+                    .solve(Arrays.stream(matrices).peek(matrix -> pulled.incrementAndGet()), statistics)
+                    .forEach(solved -> {
+                        Assert.assertTrue(pulled.get() - consumed[0] <= maxInFlight);
+                        consumed[0]++;
+
+                        int index = (int) solved.getIndex();
+                        Assert.assertFalse(seen[index]);
+                        seen[index] = true;
+                        Assert.assertSame(matrices[index], solved.getGraph());
+                        Assert.assertEquals(solver.calculateOptimum(matrices[index]).getCost(),
+                                solved.getResult().getCost(), 1e-9);
+                    });
+        } finally {
+            executor.shutdown();
+        }
+
+        System.out.println(statistics);
+
+        Assert.assertEquals(instances, consumed[0]);
+        Assert.assertEquals(instances, statistics.getCompleted());
+        Assert.assertEquals(0, statistics.getFailed());
+        Assert.assertTrue(statistics.getThroughput() > 0.0);
+        Assert.assertTrue(statistics.getP50() <= statistics.getP99());
+    }
+
+    /**
+     * Equal graphs have equal fingerprints whatever their representation, repeated solve is answered from cache and
+     * cache keeps within both of its bounds.
+     */
+    @Test
+    public void optimizerTest18() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 18\n----------------------\n");
+
+        Graph<Double> graph = TestUtils.getKnownGraph2();
+        DistanceMatrix matrix = DistanceMatrix.of(graph);
+        Assert.assertEquals(GraphFingerprint.of(graph), GraphFingerprint.of(matrix));
+        Assert.assertEquals(GraphFingerprint.of(matrix), GraphFingerprint.of(DistanceMatrix.copyOf(matrix)));
+
+        DistanceMatrix changed = DistanceMatrix.copyOf(matrix);
+        changed.setDistance(1, 3, 0.7);
+        Assert.assertFalse(GraphFingerprint.of(matrix).equals(GraphFingerprint.of(changed)));
+        Assert.assertEquals(GraphFingerprint.of(TestUtils.getEuclideanMatrix(300, 18)),
+                GraphFingerprint.of(TestUtils.getEuclideanMatrix(300, 18)));
+
+        SolveCache cache = new SolveCache(4, 1L << 20);
+        TSPCachedSolver<Double> solver = new TSPCachedSolver<>(
+                new TSPImprovedSolver<>(new TSPOneHalfEstimator<>()), cache);
+
+        DistanceMatrix instance = TestUtils.getEuclideanMatrix(60, 18);
+        SolveResult<Double> solved = solver.calculateOptimum(instance);
+        SolveResult<Double> repeated = solver.calculateOptimum(TestUtils.getEuclideanMatrix(60, 18));
+        System.out.println(solved + "\n" + repeated + "\n" + cache);
+
+        Assert.assertArrayEquals(solved.getTour(), repeated.getTour());
+        Assert.assertEquals(solved.getCost(), repeated.getCost(), 0.0);
+        Assert.assertEquals("cache", repeated.getStages().get(0).getName());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+
+        for (int i = 0; i < 6; i++)
+            solver.calculateOptimum(TestUtils.getEuclideanMatrix(20, i));
+        Assert.assertEquals(4, cache.size());
+        Assert.assertEquals(3, cache.getEvictions());
+
+        SolveCache small = new SolveCache(100, 64 * 1024);
+        for (int i = 0; i < 10; i++)
+            small.metricClosure(TestUtils.getEuclideanMatrix(40, i));
+        Assert.assertTrue(small.getBytes() <= 64 * 1024);
+        Assert.assertTrue(small.getEvictions() > 0);
+
+        Graph<Double> repaired = TestUtils.getKnownGraph2();
+        repaired.connect(repaired.getVertex(0), repaired.getVertex(1), 10.0);
+        Graph<Double> cached = TestUtils.getKnownGraph2();
+        cached.connect(cached.getVertex(0), cached.getVertex(1), 10.0);
+        repaired.assureMetric();
+        small.assureMetric(cached);
+        Assert.assertEquals(GraphFingerprint.of(repaired), GraphFingerprint.of(cached));
+    }
+
+    /**
+     * Session has to keep a valid tour of exactly the joined vertexes, with length matching the tour, and stay
+     * close to a tour improved from scratch.
+     */
+    @Test
+    public void optimizerTest19() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 19\n----------------------\n");
+
+        int n = 300;
+        DistanceMatrix matrix = TestUtils.getEuclideanMatrix(n, 19);
+        DynamicTourSession session = new DynamicTourSession(matrix, new int[0]);
+        boolean[] joined = new boolean[n];
+        Random random = new Random(19);
+
+        for (int update = 0; update < 2000; update++) {
+            int v = random.nextInt(n);
+            if (joined[v])
+                session.remove(v);
+            else
+                session.insert(v);
+            joined[v] = !joined[v];
+
+            int[] tour = session.getTour();
+            Assert.assertEquals(session.size(), tour.length);
+            for (int u : tour)
+                Assert.assertTrue(joined[u]);
+            Assert.assertEquals(Tours.length(matrix, tour), session.getLength(), 1e-6);
+        }
+
+        int[] vertices = session.getTour();
+        Arrays.sort(vertices);
+        DistanceMatrix induced = new DistanceMatrix(vertices.length);
+        for (int i = 0; i < vertices.length; i++)
+            for (int j = i + 1; j < vertices.length; j++)
+                induced.setDistance(i, j, matrix.getDistance(vertices[i], vertices[j]));
+        int[] improved = new LocalSearchImprover().improve(induced, Tours.nearestNeighbour(induced));
+        double fresh = Tours.length(induced, improved);
+
+        System.out.println("session: " + session.getLength() + ", from scratch: " + fresh + ", moves: "
+                + session.getMoves());
+        Assert.assertTrue(session.getLength() <= 1.1 * fresh);
+
+        double before = session.getLength();
+        session.improve(new LocalSearchImprover(), SolveOptions.unlimited());
+        Assert.assertTrue(session.getLength() <= before);
+        Assert.assertEquals(Tours.length(matrix, session.getTour()), session.getLength(), 1e-6);
+    }
+
+    /**
+     * Big point set, never turned into a matrix: curve tour improved with local search over spatial neighbour lists.
+     */
+    @Test
+    public void optimizerTest20() {
+        System.out.println("\n----------------------\nOptimizerTest: Test 20\n----------------------\n");
+
+        int n = 50000;
+        PointSetGraph graph = PointSetGraph.random(n, 2, 1.0, PointSetGraph.Metric.EUCLIDEAN, 20);
+
+        long start = System.nanoTime();
+        SolveResult<Double> curve = new TSPSpaceFillingCurveEstimator<Double>().solve(graph, SolveOptions.unlimited());
+        System.out.println("curve: " + curve.getCost() + " in " + TestUtils.format(System.nanoTime() - start));
+        Assert.assertTrue(TestUtils.isTour(curve.getTour(), n));
+
+        start = System.nanoTime();
+        SolveResult<Double> improved = new TSPImprovedSolver<Double>(new TSPSpaceFillingCurveEstimator<>(),
+                new LocalSearchImprover()).solve(graph, SolveOptions.unlimited());
+        System.out.println("improved: " + improved.getCost() + " in " + TestUtils.format(System.nanoTime() - start));
+        Assert.assertTrue(TestUtils.isTour(improved.getTour(), n));
+        Assert.assertEquals(Tours.length(graph, improved.getTour()), improved.getCost(), 1e-6);
+
+        // random uniform tour is about 0.7124 sqrt(n A) long
+        Assert.assertTrue(curve.getCost() < 1.5 * 0.7124 * Math.sqrt(n));
+        Assert.assertTrue(improved.getCost() < curve.getCost());
+        Assert.assertTrue(improved.getCost() < 1.1 * 0.7124 * Math.sqrt(n));
+    }
 }
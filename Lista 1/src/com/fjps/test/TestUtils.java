@@ -1,8 +1,16 @@
 package com.fjps.test;
 
+import com.fjps.main.calculation.Tours;
+import com.fjps.main.graph.DistanceGraph;
+import com.fjps.main.graph.DistanceMatrix;
+import com.fjps.main.graph.Edge;
 import com.fjps.main.graph.Graph;
 import com.fjps.main.graph.Vertex;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 /**
  * Utilities for program testing.
  *
@@ -57,6 +65,122 @@ public class TestUtils {
         return graph;
     }
 
+    /**
+     * Random points on 1000 x 1000 square, distances rounded to integers (TSPLIB <code>EUC_2D</code>).
+     */
+    public static DistanceMatrix getEuclideanMatrix(int n, long seed) {
+        Random random = new Random(seed);
+        DistanceMatrix matrix = new DistanceMatrix(n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = random.nextInt(1000);
+            y[v] = random.nextInt(1000);
+        }
+        for (int v = 0; v < n; v++)
+            for (int u = v + 1; u < n; u++)
+                matrix.setDistance(v, u, Math.rint(Math.hypot(x[v] - x[u], y[v] - y[u])));
+
+        return matrix;
+    }
+
+    /**
+     * @return <code>true</code> if <code>tour</code> is a permutation of <code>0 .. n-1</code>.
+     */
+    public static boolean isTour(int[] tour, int n) {
+        if (tour.length != n)
+            return false;
+
+        boolean[] seen = new boolean[n];
+        for (int v : tour) {
+            if (v < 0 || v >= n || seen[v])
+                return false;
+            seen[v] = true;
+        }
+
+        return true;
+    }
+
+    public static double edgesWeight(DistanceGraph graph, int[] edges) {
+        double weight = 0.0;
+        for (int e = 0; e < edges.length; e += 2)
+            weight += graph.getDistance(edges[e], edges[e + 1]);
+
+        return weight;
+    }
+
+    public static double pathWeight(DistanceGraph graph, int[] path) {
+        double weight = 0.0;
+        for (int i = 1; i < path.length; i++)
+            weight += graph.getDistance(path[i - 1], path[i]);
+
+        return weight;
+    }
+
+    public static double routeWeight(List<? extends Edge<?>> route) {
+        double weight = 0.0;
+        for (Edge<?> e : route)
+            weight += e.getWeight().doubleValue();
+
+        return weight;
+    }
+
+    /**
+     * Length of the shortest tour, by checking all permutations starting with vertex 0.
+     */
+    public static double optimalTourLength(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++)
+            tour[i] = i;
+
+        return optimalTourLength(graph, tour, 1);
+    }
+
+    private static double optimalTourLength(DistanceGraph graph, int[] tour, int fixed) {
+        if (fixed == tour.length)
+            return Tours.length(graph, tour);
+
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = fixed; i < tour.length; i++) {
+            swap(tour, fixed, i);
+            best = Math.min(best, optimalTourLength(graph, tour, fixed + 1));
+            swap(tour, fixed, i);
+        }
+
+        return best;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * Weight of minimum perfect matching of all vertexes, by dynamic programming over subsets.
+     */
+    public static double minimumPerfectMatchingWeight(DistanceGraph graph) {
+        int n = graph.getNumberVertexes();
+        double[] best = new double[1 << n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[0] = 0.0;
+
+        for (int set = 0; set < best.length; set++) {
+            int i = Integer.numberOfTrailingZeros(~set);
+            if (i >= n || best[set] == Double.POSITIVE_INFINITY)
+                continue;
+
+            for (int j = i + 1; j < n; j++)
+                if ((set & (1 << j)) == 0) {
+                    int next = set | (1 << i) | (1 << j);
+                    best[next] = Math.min(best[next], best[set] + graph.getDistance(i, j));
+                }
+        }
+
+        return best[best.length - 1];
+    }
+
     public static String format(long nanos) {
         long sec = Math.abs(nanos / NANO);
         return String.format(
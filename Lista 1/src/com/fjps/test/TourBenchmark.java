@@ -0,0 +1,128 @@
+package com.fjps.test;
+
+import com.fjps.main.calculation.ArrayTour;
+import com.fjps.main.calculation.Tour;
+import com.fjps.main.calculation.TwoLevelListTour;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares <code>ArrayTour</code> and <code>TwoLevelListTour</code> on random 2-opt moves, <code>next()</code> and
+ * <code>between()</code> queries. Every measurement is repeated after a warm-up round of the same size; reported
+ * numbers are operations per microsecond.
+ * <p>
+ * Run as <code>java com.fjps.test.TourBenchmark [sizes...]</code>.
+ */
+public class TourBenchmark {
+
+    private static final long ROUND_NANOS = 500000000L;
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100, 1000, 10000, 100000} : new int[args.length];
+        for (int i = 0; i < args.length; i++)
+            sizes[i] = Integer.parseInt(args[i]);
+
+        System.out.println("n\trepresentation\tflip/us\tnext/us\tbetween/us");
+
+        for (int n : sizes) {
+            report(n, "array", ArrayTour::new);
+            report(n, "two-level", TwoLevelListTour::new);
+        }
+
+        if (sink == 42)
+            System.out.println();
+    }
+
+    private static void report(int n, String name, Function<int[], Tour> factory) {
+        double flips = 0.0;
+        double nexts = 0.0;
+        double betweens = 0.0;
+
+        for (int round = 0; round < 2; round++) {
+            Tour tour = factory.apply(shuffled(n, new Random(n)));
+            flips = flips(tour, new Random(round));
+            nexts = nexts(tour);
+            betweens = betweens(tour, new Random(round));
+        }
+
+        System.out.printf("%d\t%s\t%.3f\t%.3f\t%.3f%n", n, name, flips, nexts, betweens);
+    }
+
+    private static double flips(Tour tour, Random random) {
+        int n = tour.size();
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            for (int i = 0; i < 100; i++) {
+                int a = random.nextInt(n);
+                int c = random.nextInt(n);
+                int b = tour.next(a);
+                int d = tour.next(c);
+                if (a == c || b == c || a == d)
+                    continue;
+
+                tour.flip(a, b, c, d);
+                operations++;
+            }
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+
+        return 1000.0 * operations / elapsed;
+    }
+
+    private static double nexts(Tour tour) {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        int v = 0;
+
+        do {
+            for (int i = 0; i < 10000; i++)
+                v = tour.next(v);
+            operations += 10000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+
+        sink += v;
+        return 1000.0 * operations / elapsed;
+    }
+
+    private static double betweens(Tour tour, Random random) {
+        int n = tour.size();
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        int count = 0;
+
+        do {
+            for (int i = 0; i < 10000; i++)
+                if (tour.between(random.nextInt(n), random.nextInt(n), random.nextInt(n)))
+                    count++;
+            operations += 10000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+
+        sink += count;
+        return 1000.0 * operations / elapsed;
+    }
+
+    private static int[] shuffled(int n, Random random) {
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++)
+            tour[i] = i;
+
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = tour[i];
+            tour[i] = tour[j];
+            tour[j] = swap;
+        }
+
+        return tour;
+    }
+}